@@ -0,0 +1,50 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description 基准测试入口，benchmark profile 中 exec:exec 默认的主类
+ *
+ * 运行全部：mvn -P benchmark test-compile exec:exec
+ * 指定用例和参数（JMH 命令行格式）：mvn -P benchmark test-compile exec:exec -Djmh.args="JacksonUtilBenchmark -f 1"
+ * 使用 JMH 原生入口：mvn -P benchmark test-compile exec:exec -Djmh.main=org.openjdk.jmh.Main -Djmh.args="..."
+ *
+ * 依次以 Throughput（ops/s）和 SampleTime（延迟分位数，微秒）两种模式运行，并用 GC profiler 输出分配速率
+ *
+ * @author zangrong
+ * @Date 2026-10-19 18:20
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        run(commandLine, Mode.Throughput, TimeUnit.SECONDS);
+        run(commandLine, Mode.SampleTime, TimeUnit.MICROSECONDS);
+    }
+
+    private static void run(CommandLineOptions commandLine, Mode mode, TimeUnit unit) throws RunnerException {
+        // 命令行没有指定用例时跑全部
+        new Runner(new OptionsBuilder().parent(commandLine).mode(mode).timeUnit(unit)
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @Description HttpUtil 的吞吐和延迟基准，服务端是进程内的 HttpServer/HttpsServer，不受外部网络影响
+ *
+ * 运行：mvn -P benchmark test-compile exec:exec -Djmh.args="HttpUtilBenchmark"
+ * 只跑部分用例或调整参数：mvn -P benchmark test-compile exec:exec -Djmh.args="HttpUtilBenchmark.doGet -p payloadSize=256 -t 8"
+ *
+ * 运行方式见 {@link BenchmarkMain}
+ *
+ * @author zangrong
+ * @Date 2026-10-19 18:20
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpUtilBenchmark {
+
+    private static final int FAN_OUT = 16;
+    private static final Map<String, Object> CONNECTION_CLOSE = Map.of("Connection", "close");
+
+    @Param({"256", "16384", "1048576"})
+    private int payloadSize;
+
+    private HttpServer server;
+    private HttpsServer httpsServer;
+    private ExecutorService serverExecutor;
+    private File keyStore;
+    private String baseUrl;
+    private String httpsUrl;
+    private String json;
+    private File downloadTarget;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GeneralSecurityException, InterruptedException {
+        // 服务端默认开启 Nagle，小响应在长连接上会和客户端的延迟 ACK 叠加出 40ms 左右的停顿，测出来的就不是客户端本身了
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        serverExecutor = Executors.newFixedThreadPool(32);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        handle(server);
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        httpsServer = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        httpsServer.setHttpsConfigurator(new HttpsConfigurator(selfSignedContext()));
+        handle(httpsServer);
+        httpsServer.setExecutor(serverExecutor);
+        httpsServer.start();
+        httpsUrl = "https://127.0.0.1:" + httpsServer.getAddress().getPort();
+        HttpUtil.configureSsl(TrustAllStrategy.INSTANCE, false);
+
+        char[] chars = new char[Math.max(0, payloadSize - 8)];
+        Arrays.fill(chars, 'x');
+        json = "{\"v\":\"" + new String(chars) + "\"}";
+        downloadTarget = File.createTempFile("benchmark-", ".bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        HttpUtil.shutdown();
+        server.stop(0);
+        httpsServer.stop(0);
+        serverExecutor.shutdownNow();
+        keyStore.delete();
+        downloadTarget.delete();
+    }
+
+    /**
+     * 连接池复用连接
+     */
+    @Benchmark
+    public String doGetPooled() {
+        return HttpUtil.doGet(baseUrl + "/bytes?size=" + payloadSize);
+    }
+
+    /**
+     * 每个请求新建连接，对比连接复用的收益
+     */
+    @Benchmark
+    public String doGetUnpooled() {
+        return HttpUtil.doGet(baseUrl + "/bytes?size=" + payloadSize, null, CONNECTION_CLOSE);
+    }
+
+    @Benchmark
+    public String doPostJson() {
+        return HttpUtil.doPostJson(baseUrl + "/echo", json);
+    }
+
+    @Benchmark
+    public String doGetSsl() {
+        return HttpUtil.doGet(httpsUrl + "/bytes?size=" + payloadSize);
+    }
+
+    @Benchmark
+    public String doPostSslJson() {
+        return HttpUtil.doPostSslJson(httpsUrl + "/echo", json);
+    }
+
+    /**
+     * 每次新建 TLS 连接，包含握手开销
+     */
+    @Benchmark
+    public String doGetSslUnpooled() {
+        return HttpUtil.doGet(httpsUrl + "/bytes?size=" + payloadSize, null, CONNECTION_CLOSE);
+    }
+
+    @Benchmark
+    public String asyncGet() {
+        return HttpUtil.async().get(baseUrl + "/bytes?size=" + payloadSize).join().getBodyAsString();
+    }
+
+    /**
+     * 同时发出多个非阻塞请求再等待全部完成
+     */
+    @Benchmark
+    @OperationsPerInvocation(FAN_OUT)
+    public int asyncFanOut() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[FAN_OUT];
+        for (int i = 0; i < FAN_OUT; i++) {
+            futures[i] = HttpUtil.async().get(baseUrl + "/bytes?size=" + payloadSize);
+        }
+        CompletableFuture.allOf(futures).join();
+        return futures.length;
+    }
+
+    @Benchmark
+    public boolean download() {
+        return HttpUtil.download(baseUrl + "/bytes?size=" + payloadSize, downloadTarget.getPath(), null, 1);
+    }
+
+    private static void handle(HttpServer server) {
+        server.createContext("/bytes", exchange -> {
+            int size = Integer.parseInt(exchange.getRequestURI().getQuery().substring("size=".length()));
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(size));
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, size);
+            try (OutputStream os = exchange.getResponseBody()) {
+                byte[] block = new byte[8192];
+                Arrays.fill(block, (byte) 'x');
+                for (int written = 0; written < size; written += block.length) {
+                    os.write(block, 0, Math.min(block.length, size - written));
+                }
+            }
+        });
+        server.createContext("/echo", HttpUtilBenchmark::echo);
+    }
+
+    private static void echo(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream is = exchange.getRequestBody()) {
+            body = is.readAllBytes();
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /**
+     * 用 JDK 自带的 keytool 生成自签名证书
+     */
+    private SSLContext selfSignedContext() throws IOException, GeneralSecurityException, InterruptedException {
+        keyStore = File.createTempFile("benchmark-", ".p12");
+        keyStore.delete();
+        char[] password = "benchmark".toCharArray();
+        String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+        Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "server", "-keyalg", "RSA",
+                "-keysize", "2048", "-validity", "1", "-dname", "CN=127.0.0.1", "-storetype", "PKCS12",
+                "-keystore", keyStore.getPath(), "-storepass", new String(password)).inheritIO().start();
+        if (process.waitFor() != 0) {
+            throw new IOException("keytool 生成证书失败");
+        }
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStore.toPath())) {
+            store.load(in, password);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(store, password);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), null, null);
+        return context;
+    }
+}
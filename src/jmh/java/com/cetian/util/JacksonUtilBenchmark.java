@@ -0,0 +1,153 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Description JacksonUtil.clone 与原先先转成 json 字符串再解析的拷贝方式对比
+ *
+ * 运行：mvn -P benchmark test-compile exec:exec -Djmh.args="JacksonUtilBenchmark"
+ *
+ * @author zangrong
+ * @Date 2026-10-19 21:30
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JacksonUtilBenchmark {
+
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        order = new Order();
+        order.setId(123456789L);
+        order.setCustomer("cetian");
+        order.setAmount(new BigDecimal("10086.50"));
+        order.setAttributes(new LinkedHashMap<>(Map.of("channel", "web", "coupon", "NEW2026")));
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Item item = new Item();
+            item.setSku("SKU-" + i);
+            item.setQuantity(i + 1);
+            item.setPrice(new BigDecimal("19.9"));
+            items.add(item);
+        }
+        order.setItems(items);
+    }
+
+    /**
+     * 原先的实现：toJson 再 fromJson
+     */
+    @Benchmark
+    public Order stringRoundTrip() {
+        return JacksonUtil.fromJson(JacksonUtil.toJson(order), Order.class);
+    }
+
+    @Benchmark
+    public Order tokenBufferClone() {
+        return JacksonUtil.clone(order);
+    }
+
+    public static class Order {
+        private long id;
+        private String customer;
+        private BigDecimal amount;
+        private Map<String, String> attributes;
+        private List<Item> items;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getCustomer() {
+            return customer;
+        }
+
+        public void setCustomer(String customer) {
+            this.customer = customer;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public Map<String, String> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(Map<String, String> attributes) {
+            this.attributes = attributes;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Item> items) {
+            this.items = items;
+        }
+    }
+
+    public static class Item {
+        private String sku;
+        private int quantity;
+        private BigDecimal price;
+
+        public String getSku() {
+            return sku;
+        }
+
+        public void setSku(String sku) {
+            this.sku = sku;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public void setPrice(BigDecimal price) {
+            this.price = price;
+        }
+    }
+}
@@ -7,13 +7,51 @@
  */
 package com.cetian.util;
 
+import com.cetian.util.http.AsyncHttpClient;
+import com.cetian.util.http.BatchHandler;
+import com.cetian.util.http.BatchResult;
+import com.cetian.util.http.BodyReader;
+import com.cetian.util.http.CallScope;
+import com.cetian.util.http.ChunkHandler;
+import com.cetian.util.http.CircuitBreaker;
+import com.cetian.util.http.CircuitBreakerOpenException;
+import com.cetian.util.http.CircuitBreakerPolicy;
+import com.cetian.util.http.CompressionPolicy;
+import com.cetian.util.http.FileChannelEntity;
+import com.cetian.util.http.HedgePolicy;
+import com.cetian.util.http.HostThrottle;
+import com.cetian.util.http.Http2Transport;
+import com.cetian.util.http.HttpCache;
+import com.cetian.util.http.InstrumentedConnectionManager;
+import com.cetian.util.http.InstrumentedRequestExecutor;
+import com.cetian.util.http.InstrumentedSslSocketFactory;
+import com.cetian.util.http.PoolSnapshot;
+import com.cetian.util.http.JsonEntity;
+import com.cetian.util.http.KeepAliveStrategy;
+import com.cetian.util.http.RangeDownloader;
+import com.cetian.util.http.Request;
+import com.cetian.util.http.RequestTiming;
+import com.cetian.util.http.ResponseTooLargeException;
+import com.cetian.util.http.Response;
+import com.cetian.util.http.RetryPolicy;
+import com.cetian.util.http.SingleFlight;
+import com.cetian.util.http.SpooledBody;
+import com.cetian.util.http.StreamHandler;
+import com.cetian.util.http.ThrottlePolicy;
+import com.cetian.util.http.TimingRecorder;
+import com.cetian.util.http.VirtualThreads;
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.GzipCompressingEntity;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
@@ -21,35 +59,64 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.cache.CacheConfig;
+import org.apache.http.impl.client.cache.CachingHttpClients;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.client.IdleConnectionEvictor;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.EntityUtils;
 import org.json.JSONObject;
-import org.springframework.util.StreamUtils;
 
 import javax.net.ssl.*;
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
-import java.security.SecureRandom;
-import java.security.cert.CertificateException;
-import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @ClassName: HttpUtil
@@ -61,27 +128,68 @@ import java.util.Map.Entry;
 @Slf4j
 public class HttpUtil {
 
-	private static PoolingHttpClientConnectionManager connMgr;
+	private static volatile InstrumentedConnectionManager connMgr;
+	// 连接池的后台回收线程，随共享客户端创建和关闭
+	private static IdleConnectionEvictor connEvictor;
+	// 所有请求共享的连接池客户端，懒加载，shutdown 后再次使用会重新创建
+	private static volatile CloseableHttpClient httpClient;
+	// GET 响应缓存配置，为 null 时不启用缓存
+	private static volatile CacheConfig cacheConfig;
+	private static volatile HttpCache httpCache;
+	// https 连接使用的 SSL 配置，连接池创建时注册一次，所有请求共用，TLS 会话可以复用
+	private static SSLContext sslContext = SSLContexts.createDefault();
+	private static HostnameVerifier hostnameVerifier = SSLConnectionSocketFactory.getDefaultHostnameVerifier();
+	// 重试和熔断策略，为 null 时不启用
+	private static volatile RetryPolicy retryPolicy;
+	private static volatile CircuitBreakerPolicy circuitBreakerPolicy;
+	// 按目标地址的客户端限速和自适应并发限制，为 null 时不启用
+	private static volatile ThrottlePolicy throttlePolicy;
+	// 是否通过 HTTP/2 发送请求，同一地址的并发请求在少量连接上多路复用
+	private static volatile boolean http2Enabled;
+	private static volatile Http2Transport http2Transport;
+	// 读入内存的响应 body 的最大长度，流式读取的方法不受限制
+	private static volatile long maxBodySize = 64 * 1024 * 1024;
+	// doGetSpooled 超过该长度的 body 写入临时文件
+	private static volatile int spoolThreshold = 1024 * 1024;
+	// 请求各阶段耗时统计，默认关闭
+	private static final TimingRecorder timingRecorder = new TimingRecorder();
+	// 请求和响应的压缩协商，默认声明并解压 gzip/deflate 响应，不压缩请求
+	private static volatile CompressionPolicy compressionPolicy = new CompressionPolicy();
+	// 对冲请求策略：超过 p95 未返回时对冲，对冲请求不超过总请求的 10%
+	private static volatile HedgePolicy hedgePolicy = new HedgePolicy(95, 100, 10);
+	// 相同 GET 请求合并，为 null 时不合并
+	private static volatile SingleFlight<List<Object>, String> singleFlight;
+	// 非阻塞客户端，懒加载
+	private static volatile AsyncHttpClient asyncClient;
+	// 非阻塞客户端同时在途的最大请求数
+	private static int asyncMaxConcurrency = 200;
+	// 非阻塞客户端回调线程数
+	private static int asyncThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
 	private static RequestConfig requestConfig;
 	private static final int MAX_TIMEOUT = 7000;
+	// 连接池最大连接数
+	private static int maxTotal = 200;
+	// 每个目标地址默认的最大连接数
+	private static int defaultMaxPerRoute = maxTotal;
+	// 按目标地址单独设置的最大连接数，连接池重建后仍然有效
+	private static final Map<HttpRoute, Integer> maxPerRoute = new ConcurrentHashMap<>();
 	// 连接超时时间，默认10秒
 	private static int connectTimeout = 10000;
 	// 传输超时时间，默认30秒
 	private static int socketTimeout = 30000;
 
 	private static int validateTimeout = 5000;
+	// 流式读取缓冲区大小
+	private static final int STREAM_BUFFER_SIZE = 8192;
+	// 空闲连接回收时间，默认60秒
+	private static int idleTimeout = 60000;
+	// 连接保留时间：按服务端的 Keep-Alive 头，没有时 30 秒，最长不超过空闲回收时间
+	private static volatile KeepAliveStrategy keepAliveStrategy = new KeepAliveStrategy(30000, idleTimeout);
 
 	private static String UTF_8 = "UTF-8";
 	private static Charset CHARSET_UTF_8 = Charset.forName("UTF-8");
 
 	static {
-		// 设置连接池
-		connMgr = new PoolingHttpClientConnectionManager();
-		// 设置连接池大小
-		connMgr.setMaxTotal(200);
-		connMgr.setDefaultMaxPerRoute(connMgr.getMaxTotal());
-		connMgr.setValidateAfterInactivity(validateTimeout);
-
 		RequestConfig.Builder configBuilder = RequestConfig.custom();
 		// 设置连接超时
 		configBuilder.setConnectTimeout(connectTimeout);
@@ -94,6 +202,669 @@ public class HttpUtil {
 		requestConfig = configBuilder.build();
 	}
 
+	/**
+	 * 获取共享的连接池客户端，首次调用（或 shutdown 之后再次调用）时创建
+	 *
+	 * @return
+	 */
+	public static CloseableHttpClient getHttpClient() {
+		CloseableHttpClient client = httpClient;
+		if (client == null) {
+			synchronized (HttpUtil.class) {
+				client = httpClient;
+				if (client == null) {
+					client = createHttpClient();
+					httpClient = client;
+				}
+			}
+		}
+		return client;
+	}
+
+	/**
+	 * 获取非阻塞客户端，返回 CompletableFuture，少量线程即可支撑大量并发请求
+	 *
+	 * <pre>
+	 * HttpUtil.async().get(url).thenApply(Response::getBodyAsString);
+	 * </pre>
+	 *
+	 * @return
+	 */
+	public static AsyncHttpClient async() {
+		AsyncHttpClient client = asyncClient;
+		if (client == null) {
+			synchronized (HttpUtil.class) {
+				client = asyncClient;
+				if (client == null) {
+					client = new AsyncHttpClient(connectTimeout, socketTimeout, asyncMaxConcurrency, asyncThreads,
+							sslContext, compressionPolicy, http2Enabled);
+					client.setMaxBodySize(maxBodySize);
+					asyncClient = client;
+				}
+			}
+		}
+		return client;
+	}
+
+	/**
+	 * 关闭共享客户端及连接池，释放所有连接和后台回收线程
+	 */
+	public static void shutdown() {
+		synchronized (HttpUtil.class) {
+			if (connEvictor != null) {
+				connEvictor.shutdown();
+				connEvictor = null;
+			}
+			IoUtil.close(httpCache, httpClient);
+			httpCache = null;
+			httpClient = null;
+			connMgr = null;
+			if (asyncClient != null) {
+				asyncClient.close();
+				asyncClient = null;
+			}
+			if (http2Transport != null) {
+				http2Transport.close();
+				http2Transport = null;
+			}
+		}
+	}
+
+	/**
+	 * 设置 https 的证书信任策略，如信任自签名证书 TrustSelfSignedStrategy，或全部信任 TrustAllStrategy；
+	 * SSLContext 只创建一次，所有 https 请求共用。会关闭现有客户端并重建连接池，进行中的请求会失败，应在启动时设置
+	 *
+	 * @param trustStrategy
+	 *            为 null 时使用 JDK 默认的信任证书
+	 * @param verifyHostname
+	 *            是否校验证书中的域名
+	 */
+	public static void configureSsl(TrustStrategy trustStrategy, boolean verifyHostname) {
+		try {
+			SSLContext context = SSLContexts.custom().loadTrustMaterial(trustStrategy).build();
+			configureSsl(context, verifyHostname ? SSLConnectionSocketFactory.getDefaultHostnameVerifier()
+					: NoopHostnameVerifier.INSTANCE);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("SSLContext 创建失败", e);
+		}
+	}
+
+	/**
+	 * 设置 https 使用的 SSLContext，可包含客户端证书等配置。会关闭现有客户端并重建连接池，进行中的请求会失败，应在启动时设置
+	 *
+	 * @param context
+	 * @param verifier
+	 */
+	public static void configureSsl(SSLContext context, HostnameVerifier verifier) {
+		synchronized (HttpUtil.class) {
+			sslContext = context;
+			hostnameVerifier = verifier;
+			// 下次请求时用新的 SSL 配置重建连接池
+			shutdown();
+		}
+	}
+
+	/**
+	 * 设置重试策略，为 null 时不重试（连接池中失效连接的自动重试不受影响）
+	 *
+	 * <pre>
+	 * HttpUtil.setRetryPolicy(new RetryPolicy(3, 100, 2000));
+	 * </pre>
+	 *
+	 * @param policy
+	 */
+	public static void setRetryPolicy(RetryPolicy policy) {
+		retryPolicy = policy;
+	}
+
+	public static RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * 设置按目标地址熔断的策略，为 null 时不熔断；熔断期间请求直接失败，不占用连接池
+	 *
+	 * <pre>
+	 * HttpUtil.setCircuitBreakerPolicy(new CircuitBreakerPolicy(5, 10000));
+	 * </pre>
+	 *
+	 * @param policy
+	 */
+	public static void setCircuitBreakerPolicy(CircuitBreakerPolicy policy) {
+		circuitBreakerPolicy = policy;
+	}
+
+	public static CircuitBreakerPolicy getCircuitBreakerPolicy() {
+		return circuitBreakerPolicy;
+	}
+
+	/**
+	 * 设置按目标地址的客户端限流策略，为 null 时不限流；超过配额的请求在本地等待或直接失败，不发给对方
+	 *
+	 * <pre>
+	 * // 每秒 50 个请求，突发 10 个，最多 20 并发，最多等待 200 毫秒
+	 * HttpUtil.setThrottlePolicy(new ThrottlePolicy(50, 10, 20, 200));
+	 * </pre>
+	 *
+	 * @param policy
+	 */
+	public static void setThrottlePolicy(ThrottlePolicy policy) {
+		throttlePolicy = policy;
+	}
+
+	public static ThrottlePolicy getThrottlePolicy() {
+		return throttlePolicy;
+	}
+
+	/**
+	 * 设置压缩策略，为 null 时既不声明 Accept-Encoding 也不解压响应。会关闭现有客户端，下次请求时按新策略重建，
+	 * 进行中的请求会失败，应在启动时设置
+	 *
+	 * <pre>
+	 * // json 等文本 body 超过 1KB 时 gzip 压缩
+	 * HttpUtil.setCompressionPolicy(new CompressionPolicy(CompressionPolicy.GZIP, 1024));
+	 * </pre>
+	 *
+	 * @param policy
+	 */
+	public static void setCompressionPolicy(CompressionPolicy policy) {
+		synchronized (HttpUtil.class) {
+			compressionPolicy = policy;
+			shutdown();
+		}
+	}
+
+	public static CompressionPolicy getCompressionPolicy() {
+		return compressionPolicy;
+	}
+
+	/**
+	 * 设置读入内存的响应 body 的最大长度，默认 64M，超过时放弃读取，避免异常的大响应耗尽内存。
+	 * 对返回 String、反序列化 json 和非阻塞客户端的方法生效；doGetStream、doGetChunks、download 等流式方法不受限制
+	 *
+	 * @param max
+	 *            字节数
+	 */
+	public static void setMaxBodySize(long max) {
+		synchronized (HttpUtil.class) {
+			maxBodySize = max;
+			if (asyncClient != null) {
+				asyncClient.setMaxBodySize(max);
+			}
+		}
+	}
+
+	public static long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	/**
+	 * 设置 doGetSpooled 保存在内存中的最大长度，超过时写入临时文件，默认 1M
+	 *
+	 * @param threshold
+	 *            字节数
+	 */
+	public static void setSpoolThreshold(int threshold) {
+		spoolThreshold = threshold;
+	}
+
+	/**
+	 * 开启或关闭请求各阶段耗时统计：取连接、建连、TLS 握手、发送、等待响应头、读取 body。
+	 * 关闭时请求路径上几乎没有额外开销
+	 *
+	 * <pre>
+	 * HttpUtil.setTimingEnabled(true);
+	 * HttpUtil.getTimingRecorder().addListener(timing -&gt; log.info("{}", timing));
+	 * HttpUtil.getTimingRecorder().snapshot();
+	 * </pre>
+	 *
+	 * @param enabled
+	 */
+	public static void setTimingEnabled(boolean enabled) {
+		timingRecorder.setEnabled(enabled);
+	}
+
+	/**
+	 * 耗时统计，用于注册监听器和获取按地址汇总的直方图
+	 *
+	 * @return
+	 */
+	public static TimingRecorder getTimingRecorder() {
+		return timingRecorder;
+	}
+
+	/**
+	 * 切换到 HTTP/2 传输，所有方法签名不变。https 通过 ALPN 协商，http 通过 h2c 升级，对方不支持时回落到 HTTP/1.1。
+	 * 开启后同一地址的并发请求在少量连接上多路复用，不再受连接池每路由上限约束；
+	 * 请求 body 会先读入内存，大文件上传建议保持 HTTP/1.1；GET 响应缓存仍走 HTTP/1.1 连接池；
+	 * 证书域名总是校验，configureSsl 中的 HostnameVerifier 不生效。
+	 * 切换时关闭现有的非阻塞客户端和 HTTP/2 传输，进行中的请求会失败，应在启动时设置
+	 *
+	 * @param enabled
+	 */
+	public static void setHttp2Enabled(boolean enabled) {
+		synchronized (HttpUtil.class) {
+			if (http2Enabled == enabled) {
+				return;
+			}
+			http2Enabled = enabled;
+			// 非阻塞客户端按新的协议重建，HTTP/2 传输关闭，再次开启时重新创建
+			if (asyncClient != null) {
+				asyncClient.close();
+				asyncClient = null;
+			}
+			if (http2Transport != null) {
+				http2Transport.close();
+				http2Transport = null;
+			}
+		}
+	}
+
+	public static boolean isHttp2Enabled() {
+		return http2Enabled;
+	}
+
+	/**
+	 * HTTP/2 传输，未开启时返回 null
+	 *
+	 * @return
+	 */
+	public static Http2Transport getHttp2Transport() {
+		if (!http2Enabled) {
+			return null;
+		}
+		Http2Transport transport = http2Transport;
+		if (transport == null) {
+			synchronized (HttpUtil.class) {
+				// 等锁期间可能已被关闭，不能再创建
+				if (!http2Enabled) {
+					return null;
+				}
+				transport = http2Transport;
+				if (transport == null) {
+					transport = new Http2Transport(requestConfig, sslContext, compressionPolicy, asyncThreads);
+					http2Transport = transport;
+				}
+			}
+		}
+		return transport;
+	}
+
+	/**
+	 * 设置连接池最大连接数
+	 *
+	 * @param max
+	 */
+	public static void setMaxTotal(int max) {
+		synchronized (HttpUtil.class) {
+			maxTotal = max;
+			if (connMgr != null) {
+				connMgr.setMaxTotal(max);
+			}
+		}
+	}
+
+	/**
+	 * 设置每个目标地址默认的最大连接数，避免一个慢的服务占满整个连接池
+	 *
+	 * @param max
+	 */
+	public static void setDefaultMaxPerRoute(int max) {
+		synchronized (HttpUtil.class) {
+			defaultMaxPerRoute = max;
+			if (connMgr != null) {
+				connMgr.setDefaultMaxPerRoute(max);
+			}
+		}
+	}
+
+	/**
+	 * 单独设置某个目标地址的最大连接数
+	 *
+	 * @param url
+	 *            目标地址，只取 scheme、host 和端口，如 https://api.example.com
+	 * @param max
+	 */
+	public static void setMaxPerRoute(String url, int max) {
+		HttpRoute route = toRoute(url);
+		synchronized (HttpUtil.class) {
+			maxPerRoute.put(route, max);
+			if (connMgr != null) {
+				connMgr.setMaxPerRoute(route, max);
+			}
+		}
+	}
+
+	/**
+	 * 连接池当前状态：每个目标地址已借出、空闲、等待中的连接数及上限，以及获取连接的等待时间分布
+	 *
+	 * @return
+	 */
+	public static PoolSnapshot getPoolStats() {
+		return connectionManager().snapshot();
+	}
+
+	/**
+	 * 预先建立到某个地址的连接（https 包括 TLS 握手）放入连接池，避免启动后的首批请求承担建连耗时
+	 *
+	 * @param url
+	 *            目标地址，只取 scheme、host 和端口
+	 * @param connections
+	 *            期望的连接数，池中已有的空闲连接计入在内，不超过该地址的连接上限
+	 * @return 预热后可用的连接数
+	 */
+	public static int prewarm(String url, int connections) {
+		HttpRoute route = toRoute(url);
+		InstrumentedConnectionManager manager = connectionManager();
+		KeepAliveStrategy strategy = keepAliveStrategy;
+		try {
+			int ready = manager.prewarm(route, connections, connectTimeout, MAX_TIMEOUT,
+					strategy == null ? 0 : strategy.getDefaultMillis());
+			log.info("预热连接 {} {}/{}", route.getTargetHost(), ready, connections);
+			return ready;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return 0;
+		}
+	}
+
+	/**
+	 * 共享客户端的连接池，未创建时先创建；只读一次 connMgr，其间被 shutdown 时重新创建
+	 */
+	private static InstrumentedConnectionManager connectionManager() {
+		InstrumentedConnectionManager manager;
+		do {
+			getHttpClient();
+			manager = connMgr;
+		} while (manager == null);
+		return manager;
+	}
+
+	/**
+	 * 对所有通过 {@link #setMaxPerRoute(String, int)} 配置过的地址预热连接，适合在启动时调用
+	 *
+	 * @param connectionsPerRoute
+	 * @return 预热后可用的连接总数
+	 */
+	public static int prewarm(int connectionsPerRoute) {
+		int ready = 0;
+		for (HttpRoute route : maxPerRoute.keySet()) {
+			ready += prewarm(route.getTargetHost().toURI(), connectionsPerRoute);
+		}
+		return ready;
+	}
+
+	/**
+	 * 设置连接保留时间策略，会关闭现有客户端，下次请求时按新策略重建
+	 *
+	 * @param strategy
+	 *            为 null 时使用 HttpClient 默认行为：没有 Keep-Alive 头的连接一直保留到空闲回收
+	 */
+	public static void setKeepAliveStrategy(KeepAliveStrategy strategy) {
+		synchronized (HttpUtil.class) {
+			keepAliveStrategy = strategy;
+			shutdown();
+		}
+	}
+
+	public static KeepAliveStrategy getKeepAliveStrategy() {
+		return keepAliveStrategy;
+	}
+
+	/**
+	 * 与 DefaultRoutePlanner 生成的路由一致：补全默认端口，不经过代理
+	 */
+	private static HttpRoute toRoute(String url) {
+		URI uri = URI.create(url);
+		String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase(Locale.ROOT);
+		boolean secure = "https".equals(scheme);
+		int port = uri.getPort() > 0 ? uri.getPort() : secure ? 443 : 80;
+		return new HttpRoute(new HttpHost(uri.getHost(), port, scheme), null, secure);
+	}
+
+	/**
+	 * 启用 GET 响应缓存，遵循 Cache-Control/Expires，过期后用 ETag/Last-Modified 重新验证
+	 *
+	 * @param maxEntries
+	 *            最多缓存的响应数，超出时淘汰最久未使用的
+	 * @param maxObjectSize
+	 *            单个响应 body 的最大字节数，超出的不缓存
+	 */
+	public static void enableCache(int maxEntries, long maxObjectSize) {
+		synchronized (HttpUtil.class) {
+			IoUtil.close(httpCache);
+			httpCache = null;
+			cacheConfig = CacheConfig.custom()
+					.setMaxCacheEntries(maxEntries)
+					.setMaxObjectSize(maxObjectSize)
+					.build();
+		}
+	}
+
+	/**
+	 * 关闭 GET 响应缓存并清空已缓存的内容
+	 */
+	public static void disableCache() {
+		synchronized (HttpUtil.class) {
+			IoUtil.close(httpCache);
+			httpCache = null;
+			cacheConfig = null;
+		}
+	}
+
+	/**
+	 * 开启后，相同地址、参数和 header 的并发 doGet 只发出一个请求，其余调用等待并共享结果，
+	 * 避免缓存失效时大量相同请求同时打到服务端
+	 *
+	 * @param enabled
+	 */
+	public static void setSingleFlightEnabled(boolean enabled) {
+		singleFlight = enabled ? new SingleFlight<>() : null;
+	}
+
+	/**
+	 * 获取请求合并的统计，未开启时返回 null
+	 *
+	 * @return
+	 */
+	public static SingleFlight<List<Object>, String> getSingleFlight() {
+		return singleFlight;
+	}
+
+	/**
+	 * 请求的唯一标识：方法、地址、按名称排序的参数和 header，以及 body 的长度上限，
+	 * 上限不同的调用结果可能不同，不合并
+	 */
+	private static List<Object> requestKey(String method, String url, Map<String, Object> params,
+			Map<String, Object> headers, long maxBodySize) {
+		Map<String, String> sortedParams = new TreeMap<>();
+		if (params != null) {
+			params.forEach((name, value) -> sortedParams.put(name, ObjectUtil.trimToEmpty(value)));
+		}
+		// header 名称不区分大小写
+		Map<String, String> sortedHeaders = new TreeMap<>();
+		if (headers != null) {
+			headers.forEach((name, value) -> sortedHeaders.put(name.toLowerCase(Locale.ROOT), ObjectUtil.trimToEmpty(value)));
+		}
+		return Arrays.asList(method, url, sortedParams, sortedHeaders, maxBodySize);
+	}
+
+	/**
+	 * 获取 GET 响应缓存，可查看命中统计；未启用时返回 null
+	 *
+	 * @return
+	 */
+	public static HttpCache getHttpCache() {
+		HttpCache cache = httpCache;
+		if (cache == null && cacheConfig != null) {
+			// 缓存客户端与共享客户端使用同一个连接池
+			getHttpClient();
+			synchronized (HttpUtil.class) {
+				cache = httpCache;
+				if (cache == null && cacheConfig != null) {
+					CloseableHttpClient client = configure(CachingHttpClients.custom().setCacheConfig(cacheConfig))
+							.setConnectionManagerShared(true)
+							.build();
+					cache = new HttpCache(client);
+					httpCache = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	private static CloseableHttpClient createHttpClient() {
+		// 设置连接池
+		Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", new InstrumentedSslSocketFactory(sslContext, hostnameVerifier))
+				.build();
+		connMgr = new InstrumentedConnectionManager(registry);
+		// 设置连接池大小
+		connMgr.setMaxTotal(maxTotal);
+		connMgr.setDefaultMaxPerRoute(defaultMaxPerRoute);
+		maxPerRoute.forEach(connMgr::setMaxPerRoute);
+		connMgr.setValidateAfterInactivity(validateTimeout);
+		// 后台线程按 validateAfterInactivity 的周期回收超过保留时间和空闲超过 idleTimeout 的连接，
+		// 空闲不到一个周期的连接在复用前由连接池检查，客户端关闭时一并关闭连接池
+		connEvictor = new IdleConnectionEvictor(connMgr, validateTimeout, TimeUnit.MILLISECONDS, idleTimeout,
+				TimeUnit.MILLISECONDS);
+		connEvictor.start();
+		return configure(HttpClients.custom()).build();
+	}
+
+	/**
+	 * 共享客户端和缓存客户端的公共配置
+	 */
+	private static <B extends HttpClientBuilder> B configure(B builder) {
+		builder.setConnectionManager(connMgr)
+				.setDefaultRequestConfig(requestConfig)
+				.setRequestExecutor(new InstrumentedRequestExecutor())
+				.setKeepAliveStrategy(keepAliveStrategy)
+				// 由 CompressionPolicy 负责协商和解压，以便统计字节数
+				.disableContentCompression();
+		CompressionPolicy compression = compressionPolicy;
+		if (compression != null) {
+			builder.addInterceptorFirst((HttpRequestInterceptor) compression)
+					.addInterceptorLast((HttpResponseInterceptor) compression);
+		}
+		return builder;
+	}
+
+	/**
+	 * 所有请求的统一出口，开启耗时统计时记录各阶段耗时，再按配置依次经过熔断、限流、重试和缓存
+	 */
+	private static CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+		RequestTiming timing = timingRecorder.start(hostOf(request), request.getMethod());
+		if (timing == null) {
+			return executeAttempts(request);
+		}
+		CloseableHttpResponse response;
+		try {
+			response = executeAttempts(request);
+		} catch (IOException | RuntimeException e) {
+			timingRecorder.fail(timing);
+			throw e;
+		}
+		return timingRecorder.track(timing, response);
+	}
+
+	private static CloseableHttpResponse executeAttempts(HttpUriRequest request) throws IOException {
+		RetryPolicy retry = retryPolicy;
+		CircuitBreakerPolicy breakers = circuitBreakerPolicy;
+		CircuitBreaker breaker = breakers == null ? null : breakers.forHost(hostOf(request));
+		ThrottlePolicy throttles = throttlePolicy;
+		HostThrottle throttle = throttles == null ? null : throttles.forHost(hostOf(request));
+		for (int attempt = 1;; attempt++) {
+			if (breaker != null && !breaker.tryAcquire()) {
+				throw new CircuitBreakerOpenException(breaker.getHost());
+			}
+			if (throttle != null) {
+				try {
+					throttle.acquire();
+				} catch (IOException e) {
+					// 半开时放行的探测请求没有发出，不能一直占着探测名额
+					if (breaker != null) {
+						breaker.releaseProbe();
+					}
+					throw e;
+				}
+			}
+			CloseableHttpResponse response;
+			try {
+				response = send(request);
+			} catch (IOException e) {
+				if (throttle != null) {
+					throttle.release(e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException
+							|| e instanceof HttpTimeoutException);
+				}
+				if (breaker != null) {
+					breaker.onFailure();
+				}
+				if (retry != null && retry.shouldRetry(request, e, attempt)) {
+					log.debug("请求异常，准备重试 request[{}] attempt[{}]", request.getRequestLine(), attempt, e);
+					backoff(retry.delayMillis(attempt, null));
+					continue;
+				}
+				throw e;
+			} catch (RuntimeException e) {
+				if (throttle != null) {
+					throttle.release(false);
+				}
+				if (breaker != null) {
+					breaker.onFailure();
+				}
+				throw e;
+			}
+			int status = response.getStatusLine().getStatusCode();
+			if (throttle != null) {
+				// 读完 body 或关闭响应时才归还并发名额
+				response = throttle.track(response, throttles.isDropped(status));
+			}
+			if (breaker != null) {
+				if (breakers.isFailure(status)) {
+					breaker.onFailure();
+				} else {
+					breaker.onSuccess();
+				}
+			}
+			if (retry != null && retry.shouldRetry(request, response, attempt)) {
+				log.debug("响应状态[{}]，准备重试 request[{}] attempt[{}]", status, request.getRequestLine(), attempt);
+				long delay = retry.delayMillis(attempt, response);
+				response.close();
+				backoff(delay);
+				continue;
+			}
+			return response;
+		}
+	}
+
+	private static CloseableHttpResponse send(HttpUriRequest request) throws IOException {
+		HttpCache cache = getHttpCache();
+		if (cache != null && cache.isCacheable(request)) {
+			return cache.execute(request);
+		}
+		Http2Transport transport = getHttp2Transport();
+		if (transport != null) {
+			return transport.execute(request);
+		}
+		return getHttpClient().execute(request);
+	}
+
+	private static void backoff(long millis) throws InterruptedIOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("重试等待被中断");
+		}
+	}
+
+	private static String hostOf(HttpUriRequest request) {
+		HttpHost host = URIUtils.extractHost(request.getURI());
+		return host == null ? String.valueOf(request.getURI()) : host.toURI();
+	}
+
 	/**
 	 * 发送 GET 请求（HTTP），不带输入数据
 	 * 
@@ -105,49 +876,276 @@ public class HttpUtil {
 	}
 
 	/**
-	 * 发送 GET 请求（HTTP），K-V形式
-	 * 
-	 * @param url
-	 * @param params
-	 * @return
+	 * 发送 GET 请求（HTTP），K-V形式
+	 * 
+	 * @param url
+	 * @param params
+	 * @return
+	 */
+	public static String doGet(String url, Map<String, Object> params, Map<String, Object> headers) {
+		return doGet(url, params, headers, maxBodySize);
+	}
+
+	/**
+	 * 发送 GET 请求（HTTP），K-V形式，限制响应 body 的长度
+	 *
+	 * @param url
+	 * @param params
+	 * @param headers
+	 * @param maxBodySize
+	 *            最大字节数，超过时放弃读取并返回 null
+	 * @return
+	 */
+	public static String doGet(String url, Map<String, Object> params, Map<String, Object> headers, long maxBodySize) {
+		SingleFlight<List<Object>, String> flight = singleFlight;
+		if (flight == null) {
+			return executeGet(url, params, headers, maxBodySize);
+		}
+		try {
+			return flight.execute(requestKey("GET", url, params, headers, maxBodySize),
+					() -> executeGet(url, params, headers, maxBodySize));
+		} catch (InterruptedException e) {
+			// 等待合并的请求时被中断，与请求本身被中断一样按 InterruptedIOException 处理
+			Thread.currentThread().interrupt();
+			InterruptedIOException interrupted = new InterruptedIOException("等待合并的请求被中断");
+			interrupted.initCause(e);
+			log.error("", interrupted);
+			return null;
+		} catch (Exception e) {
+			log.error("", e);
+			return null;
+		}
+	}
+
+	private static String executeGet(String url, Map<String, Object> params, Map<String, Object> headers,
+			long maxBodySize) {
+		String apiUrl = url;
+		String result = null;
+		try {
+			// 设置参数
+			if (params != null && !params.isEmpty()) {
+				List<NameValuePair> pairList = new ArrayList<>(params.size());
+				for (Entry<String, Object> entry : params.entrySet()) {
+					NameValuePair pair = new BasicNameValuePair(entry.getKey(), entry.getValue().toString());
+					pairList.add(pair);
+				}
+				String paramString = EntityUtils.toString(new UrlEncodedFormEntity(pairList), CHARSET_UTF_8);
+				apiUrl += "?" + paramString;
+			}
+//			log.info(apiUrl);
+			// 实例化get请求
+			HttpGet httpGet = new HttpGet(apiUrl);
+			// 设置header
+			if (headers != null && !headers.isEmpty()) {
+				for (Entry<String, Object> header : headers.entrySet()) {
+					httpGet.setHeader(header.getKey(), ObjectUtil.trimToEmpty(header.getValue()));
+				}
+			}
+			httpGet.setConfig(requestConfig);
+			try (CloseableHttpResponse response = execute(httpGet)) {
+				int statusCode = response.getStatusLine().getStatusCode();
+				log.debug("执行状态码 : " + statusCode);
+
+				HttpEntity entity = response.getEntity();
+				if (entity != null) {
+					result = BodyReader.toString(entity, CHARSET_UTF_8, maxBodySize);
+				}
+			}
+		} catch (IOException e) {
+			log.error("", e);
+		}
+		return result;
+	}
+
+	/**
+	 * 发送对冲的 GET 请求：超过该地址历史 p95 耗时仍未返回时再发一个相同请求，先返回的生效。
+	 * 基于非阻塞客户端，只占用调用线程等待结果，适合对延迟敏感的读请求
+	 *
+	 * @param url
+	 * @param params
+	 * @param headers
+	 * @return 失败时返回 null
+	 */
+	public static String doGetHedged(String url, Map<String, Object> params, Map<String, Object> headers) {
+		try {
+			return async().getHedged(url, params, headers, hedgePolicy).join().getBodyAsString();
+		} catch (CompletionException | CancellationException e) {
+			log.error("", e);
+			return null;
+		}
+	}
+
+	/**
+	 * 设置 doGetHedged 使用的对冲策略
+	 *
+	 * @param policy
+	 */
+	public static void setHedgePolicy(HedgePolicy policy) {
+		hedgePolicy = policy;
+	}
+
+	public static HedgePolicy getHedgePolicy() {
+		return hedgePolicy;
+	}
+
+	/**
+	 * 通过共享连接池同步发送一个请求，读取完整的响应
+	 *
+	 * @param request
+	 * @return 任何状态码都正常返回
+	 * @throws IOException
+	 */
+	public static Response execute(Request request) throws IOException {
+		return execute(toHttpRequest(request), request);
+	}
+
+	private static Response execute(HttpRequestBase httpRequest, Request request) throws IOException {
+		try (CloseableHttpResponse response = execute(httpRequest)) {
+			Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+			for (Header header : response.getAllHeaders()) {
+				headers.computeIfAbsent(header.getName(), key -> new ArrayList<>()).add(header.getValue());
+			}
+			HttpEntity entity = response.getEntity();
+			long maxSize = request.getMaxBodySize() > 0 ? request.getMaxBodySize() : maxBodySize;
+			byte[] body = entity == null ? null : BodyReader.toByteArray(entity, maxSize);
+			return new Response(response.getStatusLine().getStatusCode(), headers, body);
+		}
+	}
+
+	private static HttpRequestBase toHttpRequest(Request request) {
+		RequestBuilder builder = RequestBuilder.create(request.getMethod()).setUri(request.toUri());
+		for (Entry<String, Object> header : request.getHeaders().entrySet()) {
+			builder.addHeader(header.getKey(), ObjectUtil.trimToEmpty(header.getValue()));
+		}
+		if (request.getBody() != null) {
+			ContentType contentType = request.getContentType() == null ? null
+					: ContentType.parse(request.getContentType());
+			builder.setEntity(new ByteArrayEntity(request.getBody(), contentType));
+		}
+		return (HttpRequestBase) builder.build();
+	}
+
+	/**
+	 * 批量发送请求，最多 maxInFlight 个同时在途，结果按完成顺序在当前线程回调。
+	 * 超过截止时间仍未完成的请求会被中止，以 {@link TimeoutException} 作为 error 回调。
+	 * 同一地址的并发还受连接池每路由上限约束，见 {@link #setMaxPerRoute(String, int)}
+	 *
+	 * <pre>
+	 * List&lt;Request&gt; requests = ids.stream()
+	 *         .map(id -&gt; Request.postJson(url, JacksonUtil.toJson(Map.of("id", id))))
+	 *         .collect(Collectors.toList());
+	 * HttpUtil.batch(requests, 50, 60000, result -&gt; ...);
+	 * </pre>
+	 *
+	 * @param requests
+	 * @param maxInFlight   最大在途请求数
+	 * @param timeoutMillis 整批的截止时间
+	 * @param handler
+	 * @throws InterruptedException 等待中被中断，未完成的请求会被中止
 	 */
-	public static String doGet(String url, Map<String, Object> params, Map<String, Object> headers) {
-		String apiUrl = url;
-		String result = null;
+	public static void batch(Collection<Request> requests, int maxInFlight, long timeoutMillis, BatchHandler handler)
+			throws InterruptedException {
+		List<Request> list = new ArrayList<>(requests);
+		if (list.isEmpty()) {
+			return;
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxInFlight, list.size()),
+				VirtualThreads.newThreadFactory("http-batch-"));
+		CompletionService<BatchResult> completion = new ExecutorCompletionService<>(executor);
+		HttpRequestBase[] httpRequests = new HttpRequestBase[list.size()];
+		boolean[] done = new boolean[list.size()];
+		int submitted = 0;
 		try {
-			// 设置参数
-			if (params != null && !params.isEmpty()) {
-				List<NameValuePair> pairList = new ArrayList<>(params.size());
-				for (Entry<String, Object> entry : params.entrySet()) {
-					NameValuePair pair = new BasicNameValuePair(entry.getKey(), entry.getValue().toString());
-					pairList.add(pair);
+			for (int i = 0; i < list.size(); i++) {
+				int index = i;
+				Request request = list.get(i);
+				HttpRequestBase httpRequest;
+				try {
+					httpRequest = toHttpRequest(request);
+				} catch (RuntimeException e) {
+					// 非法的 url 或 Content-Type，不发送
+					done[i] = true;
+					handler.onResult(new BatchResult(i, request, null, e));
+					continue;
 				}
-				String paramString = EntityUtils.toString(new UrlEncodedFormEntity(pairList), CHARSET_UTF_8);
-				apiUrl += "?" + paramString;
+				httpRequests[i] = httpRequest;
+				submitted++;
+				completion.submit(() -> {
+					try {
+						return new BatchResult(index, request, execute(httpRequest, request), null);
+					} catch (Exception e) {
+						return new BatchResult(index, request, null, e);
+					}
+				});
 			}
-//			log.info(apiUrl);
-			// 实例化get请求
-			HttpGet httpGet = new HttpGet(apiUrl);
-			// 设置header
-			if (headers != null && !headers.isEmpty()) {
-				for (Entry<String, Object> header : headers.entrySet()) {
-					httpGet.setHeader(header.getKey(), ObjectUtil.trimToEmpty(header.getValue()));
+			for (; submitted > 0; submitted--) {
+				Future<BatchResult> future = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				if (future == null) {
+					break;
+				}
+				BatchResult result;
+				try {
+					result = future.get();
+				} catch (ExecutionException e) {
+					// 任务内已捕获异常，只有 Error 会到这里
+					throw new IllegalStateException(e.getCause());
 				}
+				done[result.getIndex()] = true;
+				handler.onResult(result);
 			}
-			HttpClient httpclient = HttpClientBuilder.create().build();
-			HttpResponse response = httpclient.execute(httpGet);
-			int statusCode = response.getStatusLine().getStatusCode();
-			log.debug("执行状态码 : " + statusCode);
-
-			HttpEntity entity = response.getEntity();
-			if (entity != null) {
-				InputStream instream = entity.getContent();
-				result = IOUtils.toString(instream, UTF_8);
+		} finally {
+			executor.shutdownNow();
+			for (int i = 0; i < httpRequests.length; i++) {
+				if (!done[i] && httpRequests[i] != null) {
+					httpRequests[i].abort();
+				}
 			}
-		} catch (IOException e) {
-			log.error("", e);
 		}
-		return result;
+		for (int i = 0; i < list.size(); i++) {
+			if (!done[i]) {
+				handler.onResult(new BatchResult(i, list.get(i), null, new TimeoutException("批量请求超过截止时间")));
+			}
+		}
+	}
+
+	/**
+	 * 批量发送请求，等待全部完成或超过截止时间，结果按提交顺序返回，每个请求的异常记录在各自的结果中
+	 *
+	 * @param requests
+	 * @param maxInFlight   最大在途请求数
+	 * @param timeoutMillis 整批的截止时间
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public static List<BatchResult> batch(Collection<Request> requests, int maxInFlight, long timeoutMillis)
+			throws InterruptedException {
+		BatchResult[] results = new BatchResult[requests.size()];
+		batch(requests, maxInFlight, timeoutMillis, result -> results[result.getIndex()] = result);
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * 打开一个调用作用域，在其中 fork 的阻塞调用（doGet、doPostJson、execute 等）各占一个线程并发执行，
+	 * 共享截止时间，关闭作用域时取消未完成的调用。
+	 * Java 21 起使用虚拟线程，上万个并发调用不会耗尽线程；实际在途请求数仍受连接池上限约束，
+	 * 其余调用在 {@link InstrumentedConnectionManager} 的信号量上等待，不会进入连接池的 synchronized 块占住载体线程
+	 *
+	 * <pre>
+	 * try (CallScope scope = HttpUtil.openScope(2000)) {
+	 *     List&lt;Future&lt;String&gt;&gt; futures = urls.stream()
+	 *             .map(url -&gt; scope.fork(() -&gt; HttpUtil.doGet(url)))
+	 *             .collect(Collectors.toList());
+	 *     scope.join();
+	 * }
+	 * </pre>
+	 *
+	 * @param timeoutMillis 截止时间
+	 * @return
+	 * @see VirtualThreads#isSupported()
+	 */
+	public static CallScope openScope(long timeoutMillis) {
+		return new CallScope(VirtualThreads.newPerTaskExecutor("http-call-"), timeoutMillis);
 	}
 
 	/**
@@ -192,10 +1190,8 @@ public class HttpUtil {
 					httpPost.setHeader(header.getKey(), ObjectUtil.trimToEmpty(header.getValue()));
 				}
 			}
-			CloseableHttpClient httpClient = HttpClients.createDefault();
-			response = httpClient.execute(httpPost);
-			HttpEntity entity = response.getEntity();
-			httpStr = EntityUtils.toString(entity, CHARSET_UTF_8);
+			response = execute(httpPost);
+			httpStr = readBody(response);
 		} catch (IOException e) {
 			log.error("", e);
 		} finally {
@@ -239,10 +1235,8 @@ public class HttpUtil {
 					httpPost.setHeader(header.getKey(), ObjectUtil.trimToEmpty(header.getValue()));
 				}
 			}
-			CloseableHttpClient httpClient = HttpClients.createDefault();
-			response = httpClient.execute(httpPost);
-			HttpEntity entity = response.getEntity();
-			httpStr = EntityUtils.toString(entity, CHARSET_UTF_8);
+			response = execute(httpPost);
+			httpStr = readBody(response);
 		} catch (IOException e) {
 			log.error("", e);
 		} finally {
@@ -256,6 +1250,33 @@ public class HttpUtil {
 		return httpStr;
 	}
 
+	/**
+	 * 发送 POST 请求（HTTP），body 直接是文件内容（非 multipart），以 chunked 方式用 64KB 缓冲写出，
+	 * 适合上传大文件
+	 *
+	 * @param apiUrl
+	 *            API接口URL
+	 * @param file
+	 *            上传的文件
+	 * @param contentType
+	 *            为 null 时使用 application/octet-stream
+	 * @param headers
+	 * @return
+	 */
+	public static String doPostFile(String apiUrl, File file, ContentType contentType, Map<String, Object> headers) {
+		String httpStr = null;
+		HttpPost httpPost = new HttpPost(apiUrl);
+		httpPost.setConfig(requestConfig);
+		setHeaders(httpPost, headers);
+		httpPost.setEntity(new FileChannelEntity(file, contentType == null ? ContentType.APPLICATION_OCTET_STREAM : contentType));
+		try (CloseableHttpResponse response = execute(httpPost)) {
+			httpStr = readBody(response);
+		} catch (IOException e) {
+			log.error("", e);
+		}
+		return httpStr;
+	}
+
 	/**
 	 * @Title: doDelete
 	 * @Description: 发送delete请求
@@ -280,16 +1301,14 @@ public class HttpUtil {
 			}
 			HttpDelete httpDelete = new HttpDelete(apiUrl);
 			httpDelete.setConfig(requestConfig);
-			CloseableHttpClient httpClient = HttpClients.createDefault();
 			// 设置header
 			if (headers != null && !headers.isEmpty()) {
 				for (Entry<String, Object> header : headers.entrySet()) {
 					httpDelete.setHeader(header.getKey(), ObjectUtil.trimToEmpty(header.getValue()));
 				}
 			}
-			response = httpClient.execute(httpDelete);
-			HttpEntity entity = response.getEntity();
-			httpStr = EntityUtils.toString(entity, CHARSET_UTF_8);
+			response = execute(httpDelete);
+			httpStr = readBody(response);
 		} catch (IOException e) {
 			log.error("", e);
 		} finally {
@@ -312,7 +1331,6 @@ public class HttpUtil {
 	 * @return
 	 */
 	public static String doPostJson(String apiUrl, String json) {
-		CloseableHttpClient httpClient = HttpClients.createDefault();
 		String httpStr = null;
 		HttpPost httpPost = new HttpPost(apiUrl);
 		CloseableHttpResponse response = null;
@@ -320,13 +1338,11 @@ public class HttpUtil {
 		try {
 			httpPost.setConfig(requestConfig);
 			StringEntity stringEntity = new StringEntity(json, UTF_8);// 解决中文乱码问题
-			stringEntity.setContentEncoding(UTF_8);
 			stringEntity.setContentType("application/json");
 			httpPost.setEntity(stringEntity);
-			response = httpClient.execute(httpPost);
-			HttpEntity entity = response.getEntity();
-			System.out.println(response.getStatusLine().getStatusCode());
-			httpStr = EntityUtils.toString(entity, UTF_8);
+			response = execute(httpPost);
+			log.debug("执行状态码 : " + response.getStatusLine().getStatusCode());
+			httpStr = readBody(response);
 		} catch (IOException e) {
 			log.warn("", e);
 		} finally {
@@ -350,7 +1366,6 @@ public class HttpUtil {
 	 * @return
 	 */
 	public static String doPostJson(String apiUrl, Map<String, Object> headers, String json, RequestConfig config) {
-		CloseableHttpClient httpClient = HttpClients.createDefault();
 		String httpStr = null;
 		HttpPost httpPost = new HttpPost(apiUrl);
 		CloseableHttpResponse response = null;
@@ -365,13 +1380,11 @@ public class HttpUtil {
 				}
 			}
 			StringEntity stringEntity = new StringEntity(json, UTF_8);// 解决中文乱码问题
-			stringEntity.setContentEncoding(UTF_8);
 			stringEntity.setContentType("application/json");
 			httpPost.setEntity(stringEntity);
-			response = httpClient.execute(httpPost);
-			HttpEntity entity = response.getEntity();
-			System.out.println(response.getStatusLine().getStatusCode());
-			httpStr = EntityUtils.toString(entity, UTF_8);
+			response = execute(httpPost);
+			log.debug("执行状态码 : " + response.getStatusLine().getStatusCode());
+			httpStr = readBody(response);
 		} catch (IOException e) {
 			log.warn("", e);
 		} finally {
@@ -386,6 +1399,281 @@ public class HttpUtil {
 		return httpStr;
 	}
 
+	/**
+	 * 发送 GET 请求，以流的方式处理响应，body 不会整体读入内存
+	 *
+	 * @param url
+	 * @param params
+	 * @param headers
+	 * @param handler
+	 *            处理响应 body，返回后连接归还连接池
+	 * @return handler 的返回值
+	 * @throws IOException
+	 *             请求失败、状态码不是 2xx 或 handler 处理异常
+	 */
+	public static <T> T doGetStream(String url, Map<String, Object> params, Map<String, Object> headers,
+			StreamHandler<T> handler) throws IOException {
+		return executeStream(createGet(url, params, headers), handler);
+	}
+
+	/**
+	 * 发送 POST 请求（K-V形式），以流的方式处理响应
+	 *
+	 * @param apiUrl
+	 * @param params
+	 * @param headers
+	 * @param handler
+	 * @return handler 的返回值
+	 * @throws IOException
+	 */
+	public static <T> T doPostStream(String apiUrl, Map<String, Object> params, Map<String, Object> headers,
+			StreamHandler<T> handler) throws IOException {
+		HttpPost httpPost = new HttpPost(apiUrl);
+		httpPost.setConfig(requestConfig);
+		if (params != null && !params.isEmpty()) {
+			List<NameValuePair> pairList = new ArrayList<>(params.size());
+			for (Entry<String, Object> entry : params.entrySet()) {
+				pairList.add(new BasicNameValuePair(entry.getKey(), ObjectUtil.trimToEmpty(entry.getValue())));
+			}
+			httpPost.setEntity(new UrlEncodedFormEntity(pairList, CHARSET_UTF_8));
+		}
+		setHeaders(httpPost, headers);
+		return executeStream(httpPost, handler);
+	}
+
+	/**
+	 * 发送 POST 请求（JSON形式），以流的方式处理响应
+	 *
+	 * @param apiUrl
+	 * @param headers
+	 * @param json
+	 * @param handler
+	 * @return handler 的返回值
+	 * @throws IOException
+	 */
+	public static <T> T doPostJsonStream(String apiUrl, Map<String, Object> headers, String json,
+			StreamHandler<T> handler) throws IOException {
+		HttpPost httpPost = new HttpPost(apiUrl);
+		httpPost.setConfig(requestConfig);
+		setHeaders(httpPost, headers);
+		httpPost.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+		return executeStream(httpPost, handler);
+	}
+
+	/**
+	 * 发送 GET 请求，按块回调响应 body，内存占用与响应大小无关
+	 *
+	 * @param url
+	 * @param params
+	 * @param headers
+	 * @param handler
+	 * @throws IOException
+	 */
+	public static void doGetChunks(String url, Map<String, Object> params, Map<String, Object> headers,
+			ChunkHandler handler) throws IOException {
+		doGetStream(url, params, headers, body -> {
+			ReadableByteChannel channel = Channels.newChannel(body);
+			ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				if (buffer.hasRemaining()) {
+					handler.onChunk(buffer);
+				}
+				buffer.clear();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * 发送 GET 请求并返回响应 body 流，调用方必须关闭返回的流，关闭时连接归还连接池
+	 *
+	 * <pre>
+	 * try (InputStream in = HttpUtil.openStream(url, null, null)) {
+	 *     ...
+	 * }
+	 * </pre>
+	 *
+	 * @param url
+	 * @param params
+	 * @param headers
+	 * @return
+	 * @throws IOException
+	 */
+	public static InputStream openStream(String url, Map<String, Object> params, Map<String, Object> headers)
+			throws IOException {
+		CloseableHttpResponse response = execute(createGet(url, params, headers));
+		try {
+			checkStatus(response);
+			HttpEntity entity = response.getEntity();
+			InputStream body = entity == null ? InputStream.nullInputStream() : entity.getContent();
+			return new FilterInputStream(body) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						response.close();
+					}
+				}
+			};
+		} catch (IOException | RuntimeException e) {
+			response.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 发送 GET 请求，响应 JSON 直接从流反序列化为对象
+	 *
+	 * @param url
+	 * @param clazz
+	 * @return 响应无 body 时返回 null
+	 * @throws IOException
+	 *             请求失败、状态码不是 2xx 或 JSON 解析失败
+	 */
+	public static <T> T getJson(String url, Class<T> clazz) throws IOException {
+		return getJson(url, null, null, clazz);
+	}
+
+	public static <T> T getJson(String url, Map<String, Object> params, Map<String, Object> headers, Class<T> clazz)
+			throws IOException {
+		return doGetStream(url, params, headers, body -> readJson(body, in -> JacksonUtil.fromJson(in, clazz)));
+	}
+
+	public static <T> T getJson(String url, Map<String, Object> params, Map<String, Object> headers,
+			TypeReference<T> typeReference) throws IOException {
+		return doGetStream(url, params, headers, body -> readJson(body, in -> JacksonUtil.fromJson(in, typeReference)));
+	}
+
+	/**
+	 * 发送 POST 请求，请求对象直接序列化到连接输出流，响应 JSON 直接从流反序列化
+	 *
+	 * @param apiUrl
+	 * @param body
+	 *            请求对象
+	 * @param clazz
+	 * @return 响应无 body 时返回 null
+	 * @throws IOException
+	 */
+	public static <T> T postJson(String apiUrl, Object body, Class<T> clazz) throws IOException {
+		return postJson(apiUrl, null, body, in -> JacksonUtil.fromJson(in, clazz));
+	}
+
+	public static <T> T postJson(String apiUrl, Object body, TypeReference<T> typeReference) throws IOException {
+		return postJson(apiUrl, null, body, typeReference);
+	}
+
+	public static <T> T postJson(String apiUrl, Map<String, Object> headers, Object body,
+			TypeReference<T> typeReference) throws IOException {
+		return postJson(apiUrl, headers, body, in -> JacksonUtil.fromJson(in, typeReference));
+	}
+
+	private static <T> T postJson(String apiUrl, Map<String, Object> headers, Object body, StreamHandler<T> reader)
+			throws IOException {
+		HttpPost httpPost = new HttpPost(apiUrl);
+		httpPost.setConfig(requestConfig);
+		setHeaders(httpPost, headers);
+		httpPost.setEntity(new JsonEntity(body));
+		return executeStream(httpPost, in -> readJson(in, reader));
+	}
+
+	/**
+	 * 发送 GET 请求，响应 body 不超过内存阈值时保存在内存中，超过时写入临时文件，读取不占用堆内存。
+	 * 使用完必须关闭以删除临时文件
+	 *
+	 * <pre>
+	 * try (SpooledBody body = HttpUtil.doGetSpooled(url, null, null, 2L &lt;&lt; 30)) {
+	 *     try (InputStream in = body.openStream()) {
+	 *         ...
+	 *     }
+	 * }
+	 * </pre>
+	 *
+	 * @param url
+	 * @param params
+	 * @param headers
+	 * @param maxSize
+	 *            最大字节数，超过时抛出 ResponseTooLargeException
+	 * @return
+	 * @throws IOException
+	 *             网络异常，或响应状态码不是 2xx
+	 */
+	public static SpooledBody doGetSpooled(String url, Map<String, Object> params, Map<String, Object> headers,
+			long maxSize) throws IOException {
+		return executeStream(createGet(url, params, headers), in -> SpooledBody.read(in, spoolThreshold, maxSize));
+	}
+
+	private static <T> T readJson(InputStream body, StreamHandler<T> reader) throws IOException {
+		// 204 等空响应返回 null
+		PushbackInputStream in = new PushbackInputStream(BodyReader.limit(body, maxBodySize), 1);
+		int first = in.read();
+		if (first == -1) {
+			return null;
+		}
+		in.unread(first);
+		return reader.handle(in);
+	}
+
+	private static <T> T executeStream(HttpUriRequest request, StreamHandler<T> handler) throws IOException {
+		try (CloseableHttpResponse response = execute(request)) {
+			checkStatus(response);
+			HttpEntity entity = response.getEntity();
+			if (entity == null) {
+				return handler.handle(InputStream.nullInputStream());
+			}
+			InputStream body = entity.getContent();
+			try {
+				return handler.handle(body);
+			} catch (ResponseTooLargeException e) {
+				// 先中止请求，关闭 body 流时不再读完剩余数据，连接由 try-with-resources 关闭
+				request.abort();
+				throw e;
+			} finally {
+				// 关闭 body 流时读完剩余数据，连接才能复用
+				body.close();
+			}
+		}
+	}
+
+	/**
+	 * 按全局上限读取响应 body，Content-Type 未声明字符集时按 UTF-8 解码；超过上限时关闭响应中止连接
+	 */
+	private static String readBody(CloseableHttpResponse response) throws IOException {
+		HttpEntity entity = response.getEntity();
+		if (entity == null) {
+			return null;
+		}
+		try {
+			return BodyReader.toString(entity, CHARSET_UTF_8, maxBodySize);
+		} catch (ResponseTooLargeException e) {
+			response.close();
+			throw e;
+		}
+	}
+
+	private static void checkStatus(HttpResponse response) throws HttpResponseException {
+		StatusLine statusLine = response.getStatusLine();
+		if (statusLine.getStatusCode() >= 300) {
+			throw new HttpResponseException(statusLine.getStatusCode(), statusLine.getReasonPhrase());
+		}
+	}
+
+	private static HttpGet createGet(String url, Map<String, Object> params, Map<String, Object> headers) {
+		HttpGet httpGet = new HttpGet(Request.get(url).params(params).toUri());
+		httpGet.setConfig(requestConfig);
+		setHeaders(httpGet, headers);
+		return httpGet;
+	}
+
+	private static void setHeaders(HttpRequestBase request, Map<String, ?> headers) {
+		if (headers != null && !headers.isEmpty()) {
+			for (Entry<String, ?> header : headers.entrySet()) {
+				request.setHeader(header.getKey(), ObjectUtil.trimToEmpty(header.getValue()));
+			}
+		}
+	}
+
 	/**
 	 * 发送 SSL POST 请求（HTTPS），K-V形式
 	 *
@@ -396,8 +1684,6 @@ public class HttpUtil {
 	 * @return
 	 */
 	public static String doPostSsl(String apiUrl, Map<String, Object> params) {
-		CloseableHttpClient httpClient = HttpClients.custom().setSSLSocketFactory(createSSLConnSocketFactory())
-				.setConnectionManager(connMgr).setDefaultRequestConfig(requestConfig).build();
 		HttpPost httpPost = new HttpPost(apiUrl);
 		CloseableHttpResponse response = null;
 		String httpStr = null;
@@ -410,16 +1696,12 @@ public class HttpUtil {
 				pairList.add(pair);
 			}
 			httpPost.setEntity(new UrlEncodedFormEntity(pairList, Charset.forName(UTF_8)));
-			response = httpClient.execute(httpPost);
+			response = execute(httpPost);
 			int statusCode = response.getStatusLine().getStatusCode();
 			if (statusCode != HttpStatus.SC_OK) {
 				return null;
 			}
-			HttpEntity entity = response.getEntity();
-			if (entity == null) {
-				return null;
-			}
-			httpStr = EntityUtils.toString(entity, UTF_8);
+			httpStr = readBody(response);
 		} catch (Exception e) {
 			log.warn("", e);
 		} finally {
@@ -444,8 +1726,6 @@ public class HttpUtil {
 	 * @return
 	 */
 	public static String doPostSslJson(String apiUrl, Object json) {
-		CloseableHttpClient httpClient = HttpClients.custom().setSSLSocketFactory(createSSLConnSocketFactory())
-				.setConnectionManager(connMgr).setDefaultRequestConfig(requestConfig).build();
 		HttpPost httpPost = new HttpPost(apiUrl);
 		CloseableHttpResponse response = null;
 		String httpStr = null;
@@ -453,19 +1733,14 @@ public class HttpUtil {
 		try {
 			httpPost.setConfig(requestConfig);
 			StringEntity stringEntity = new StringEntity(json.toString(), UTF_8);// 解决中文乱码问题
-			stringEntity.setContentEncoding(UTF_8);
 			stringEntity.setContentType("application/json");
 			httpPost.setEntity(stringEntity);
-			response = httpClient.execute(httpPost);
+			response = execute(httpPost);
 			int statusCode = response.getStatusLine().getStatusCode();
 			if (statusCode != HttpStatus.SC_OK) {
 				return null;
 			}
-			HttpEntity entity = response.getEntity();
-			if (entity == null) {
-				return null;
-			}
-			httpStr = EntityUtils.toString(entity, UTF_8);
+			httpStr = readBody(response);
 		} catch (Exception e) {
 			log.warn("", e);
 		} finally {
@@ -490,24 +1765,20 @@ public class HttpUtil {
 	 * @return
 	 */
 	public static String doPostSslJsonGzip(String apiUrl, Object json) {
-		CloseableHttpClient httpClient = HttpClients.custom().setSSLSocketFactory(createSSLConnSocketFactory())
-				.setConnectionManager(connMgr).setDefaultRequestConfig(requestConfig).build();
 		HttpPost httpPost = new HttpPost(apiUrl);
 		CloseableHttpResponse httpResponse = null;
 		String response = null;
 		try {
 			httpPost.setConfig(requestConfig);
 			StringEntity stringEntity = new StringEntity(json.toString(), UTF_8);// 解决中文乱码问题
-			stringEntity.setContentEncoding(UTF_8);
 			stringEntity.setContentType("application/json;charset=UTF-8");
 			httpPost.setEntity(new GzipCompressingEntity(stringEntity));
-			httpPost.setEntity(stringEntity);
-			httpResponse = httpClient.execute(httpPost);
+			httpResponse = execute(httpPost);
 			HttpEntity entity = httpResponse.getEntity();
 			if (entity == null) {
 				return null;
 			}
-			response = EntityUtils.toString(entity, UTF_8);
+			response = readBody(httpResponse);
 		} catch (Exception e) {
 			log.warn("请求异常 request[{}] response[{}]", json, response);
 			log.warn("", e);
@@ -532,8 +1803,6 @@ public class HttpUtil {
 	 * @return
 	 */
 	public static String doPostSslXml(String apiUrl, String xml) {
-		CloseableHttpClient httpClient = HttpClients.custom().setSSLSocketFactory(createSSLConnSocketFactory())
-				.setConnectionManager(connMgr).setDefaultRequestConfig(requestConfig).build();
 		HttpPost httpPost = new HttpPost(apiUrl);
 		CloseableHttpResponse response = null;
 		String responseStr = null;
@@ -541,18 +1810,13 @@ public class HttpUtil {
 			httpPost.setConfig(requestConfig);
 			httpPost.addHeader("Content-Type", "text/xml");
 			StringEntity stringEntity = new StringEntity(xml, UTF_8);// 解决中文乱码问题
-			stringEntity.setContentEncoding(UTF_8);
 			httpPost.setEntity(stringEntity);
-			response = httpClient.execute(httpPost);
+			response = execute(httpPost);
 			int statusCode = response.getStatusLine().getStatusCode();
 			if (statusCode != HttpStatus.SC_OK) {
 				return null;
 			}
-			HttpEntity entity = response.getEntity();
-			if (entity == null) {
-				return null;
-			}
-			responseStr = EntityUtils.toString(entity, UTF_8);
+			responseStr = readBody(response);
 		} catch (Exception e) {
 			log.error("", e);
 		} finally {
@@ -568,148 +1832,89 @@ public class HttpUtil {
 	}
 
 	/**
-	 * 创建SSL安全连接
+	 * 以 POST 方式发送 xml 等文本数据，返回完整的响应（保留换行）。
+	 * method 参数保留兼容，实际总是 POST；Content-Type 沿用原来的 application/x-www-form-urlencoded
 	 *
+	 * @param url
+	 * @param method
+	 * @param xml
 	 * @return
+	 * @throws Exception
+	 *             网络异常，或响应状态码不小于 400 时抛出 HttpResponseException
 	 */
-	private static SSLConnectionSocketFactory createSSLConnSocketFactory() {
-		SSLConnectionSocketFactory sslsf = null;
-		try {
-			SSLContext sslContext = new SSLContextBuilder().loadTrustMaterial(null, new TrustStrategy() {
-				@Override
-				public boolean isTrusted(X509Certificate[] chain, String authType)
-						throws CertificateException {
-					return true;
-				}
-			}).build();
-			sslsf = new SSLConnectionSocketFactory(sslContext, new HostnameVerifier() {
-				@Override
-				public boolean verify(String hostname, SSLSession session) {
-					return true;
-				}
-			});
-		} catch (GeneralSecurityException e) {
-			log.warn("", e);
-		}
-		return sslsf;
-	}
-
 	public static String doHttp(String url, String method, String xml) throws Exception {
-		HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
-		// 加入数据
-		conn.setRequestMethod("POST");
-		conn.setDoOutput(true);
-
-		BufferedOutputStream buffOutStr = new BufferedOutputStream(conn.getOutputStream());
-		buffOutStr.write(xml.getBytes());
-		buffOutStr.flush();
-		buffOutStr.close();
-
-		// 获取输入流
-		BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-
-		String line = null;
-		StringBuffer sb = new StringBuffer();
-		while ((line = reader.readLine()) != null) {
-			sb.append(line);
+		Response response = execute(Request.post(url).body(xml, ContentType.APPLICATION_FORM_URLENCODED.getMimeType()));
+		if (response.getStatus() >= HttpStatus.SC_BAD_REQUEST) {
+			throw new HttpResponseException(response.getStatus(), "请求失败 url[" + url + "]");
 		}
-
-		return sb.toString();
+		return response.getBodyAsString();
 	}
 
 	/**
-	 * 
+	 * 通过共享连接池发送请求并把响应解析为 JSONObject。
+	 * https 证书按 {@link #configureSsl(TrustStrategy, boolean)} 的配置校验，需要信任自签名证书时在启动时设置一次
+	 *
 	 * @param requestUrl
 	 * @param requestMethod
 	 * @param outputString
-	 * @return
+	 *            请求 body，为 null 时不发送
+	 * @return 失败时返回 null
 	 */
 	public static JSONObject httpsRequestJson(String requestUrl, String requestMethod, String outputString) {
-		JSONObject jsonObject = null;
-		TrustManager[] tm = { new X509TrustManager() {
-			@Override
-			public void checkClientTrusted(X509Certificate[] arg0, String arg1) throws CertificateException {
-			}
-
-			@Override
-			public void checkServerTrusted(X509Certificate[] arg0, String arg1) throws CertificateException {
-			}
-
-			@Override
-			public X509Certificate[] getAcceptedIssuers() {
-				return null;
-			}
-		} };
-		StringBuffer sb = new StringBuffer();
-		HttpsURLConnection con = null;
-		InputStream inputStream = null;
-		InputStreamReader ir = null;
-		BufferedReader br = null;
 		try {
-			SSLContext sslContext = SSLContext.getInstance("SSL", "SunJSSE");
-			sslContext.init(null, tm, new SecureRandom());
-			SSLSocketFactory ssf = sslContext.getSocketFactory();
-
-			URL url = new URL(requestUrl);
-			con = (HttpsURLConnection) url.openConnection();
-			con.setSSLSocketFactory(ssf);
-			con.setDoOutput(true);
-			con.setDoInput(true);
-			con.setUseCaches(false);
-
-			con.setRequestMethod(requestMethod);
+			Request request = new Request(requestMethod, requestUrl);
 			if (outputString != null) {
-				OutputStream outputStream = con.getOutputStream();
-				outputStream.write(outputString.getBytes(UTF_8));
-				outputStream.close();
+				request.body(outputString, ContentType.APPLICATION_FORM_URLENCODED.getMimeType());
 			}
-			inputStream = con.getInputStream();
-			ir = new InputStreamReader(inputStream, UTF_8);
-			br = new BufferedReader(ir);
-
-			String line = null;
-			while ((line = br.readLine()) != null) {
-				sb.append(line);
+			Response response = execute(request);
+			if (response.getStatus() >= HttpStatus.SC_BAD_REQUEST) {
+				log.error("请求失败 url[{}] status[{}]", requestUrl, response.getStatus());
+				return null;
 			}
 			// 转换为json对象
-			jsonObject = new JSONObject(sb.toString());
+			return new JSONObject(response.getBodyAsString());
 		} catch (Exception e) {
 			log.error("", e);
-		} finally {
-			IoUtil.close(br, ir, inputStream);
-			if (con != null) {
-				con.disconnect();
-			}
+			return null;
 		}
-		return jsonObject;
 	}
 
 	private static final int downloadTimeout = 10000;
+	// 默认下载分段数
+	private static final int DOWNLOAD_SEGMENTS = 4;
 
+	/**
+	 * 下载文件，服务端支持 Range 时分段并行下载并支持断点续传
+	 *
+	 * @param url
+	 * @param filePath
+	 * @param headers
+	 * @return
+	 */
 	public static boolean download(String url, String filePath, Map<String, String> headers) {
+		return download(url, filePath, headers, DOWNLOAD_SEGMENTS);
+	}
+
+	/**
+	 * 下载文件
+	 *
+	 * @param url
+	 * @param filePath
+	 * @param headers
+	 * @param segments
+	 *            最大并行分段数，文件小于 1M 时不分段
+	 * @return 下载失败返回 false，再次调用会从断点继续
+	 */
+	public static boolean download(String url, String filePath, Map<String, String> headers, int segments) {
 		boolean result = false;
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-			HttpGet httpGet = new HttpGet(url);
-			// 设置header
-			if (headers != null && !headers.isEmpty()) {
-				for (Entry<String, String> header : headers.entrySet()) {
-					httpGet.setHeader(header.getKey(), ObjectUtil.trimToEmpty(header.getValue()));
-				}
-			}
-			httpGet.setConfig(RequestConfig.custom() //
+		try {
+			// 单次读取的超时沿用 socketTimeout，连接相关的超时保持较短
+			RequestConfig config = RequestConfig.copy(requestConfig) //
 					.setConnectionRequestTimeout(downloadTimeout) //
 					.setConnectTimeout(downloadTimeout) //
-					.setSocketTimeout(downloadTimeout) //
-					.build());
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				HttpEntity entity = response.getEntity();
-				File desc = new File(filePath);
-				try (InputStream is = entity.getContent(); //
-						OutputStream os = new FileOutputStream(desc)) {
-					StreamUtils.copy(is, os);
-					result = true;
-				}
-			}
+					.build();
+			new RangeDownloader(getHttpClient(), config).download(url, new File(filePath), headers, segments);
+			result = true;
 		} catch (Throwable e) {
 			log.error("文件下载失败 url[{}]", url);
 			log.error("文件下载失败", e);
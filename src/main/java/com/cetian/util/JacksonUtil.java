@@ -13,18 +13,34 @@
 package com.cetian.util;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.databind.util.LRUMap;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @Description
@@ -44,18 +60,216 @@ public class JacksonUtil {
         OBJECT_MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
+    // 按目标类型缓存的 reader/writer，省去每次调用时解析根类型和查找序列化器。
+    // Class 的数量有限，直接缓存；TypeReference/JavaType 可能在运行时不断构造，
+    // 按规范化的 JavaType 缓存并限制数量，超出时淘汰
+    private static final int MAX_TYPE_READERS = 1000;
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final LRUMap<JavaType, ObjectReader> TYPE_READERS = new LRUMap<>(16, MAX_TYPE_READERS);
+    private static final Map<Class<?>, ObjectReader> LIST_READERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    private static ObjectReader reader(Class<?> clazz) {
+        ObjectReader reader = READERS.get(clazz);
+        if (reader == null) {
+            reader = READERS.computeIfAbsent(clazz, OBJECT_MAPPER::readerFor);
+        }
+        return reader;
+    }
+
+    private static ObjectReader reader(TypeReference<?> typeReference) {
+        return reader(OBJECT_MAPPER.getTypeFactory().constructType(typeReference));
+    }
+
+    private static ObjectReader reader(JavaType javaType) {
+        ObjectReader reader = TYPE_READERS.get(javaType);
+        if (reader == null) {
+            reader = OBJECT_MAPPER.readerFor(javaType);
+            TYPE_READERS.putIfAbsent(javaType, reader);
+        }
+        return reader;
+    }
+
+    private static ObjectReader listReader(Class<?> clazz) {
+        ObjectReader reader = LIST_READERS.get(clazz);
+        if (reader == null) {
+            reader = LIST_READERS.computeIfAbsent(clazz, c -> OBJECT_MAPPER
+                    .readerFor(OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, c)));
+        }
+        return reader;
+    }
+
+    private static ObjectWriter writer(Object value) {
+        if (value == null) {
+            return OBJECT_MAPPER.writer();
+        }
+        ObjectWriter writer = WRITERS.get(value.getClass());
+        if (writer == null) {
+            writer = WRITERS.computeIfAbsent(value.getClass(), OBJECT_MAPPER::writerFor);
+        }
+        return writer;
+    }
+
     public static <T> T fromJson(String string, Class<T> clazz) {
+        return read(string, reader(clazz));
+    }
+
+    /**
+     * 解析为泛型类型，如 {@code new TypeReference<Map<String, List<User>>>() {}}
+     *
+     * @param string
+     * @param typeReference
+     * @return
+     */
+    public static <T> T fromJson(String string, TypeReference<T> typeReference) {
+        return read(string, reader(typeReference));
+    }
+
+    /**
+     * 解析为运行时构造的类型，如 {@code JacksonUtil.getTypeFactory().constructMapType(...)}
+     *
+     * @param string
+     * @param javaType
+     * @return
+     */
+    public static <T> T fromJson(String string, JavaType javaType) {
+        return read(string, reader(javaType));
+    }
+
+    /**
+     * 直接把 json 数组解析为元素类型的 List，不经过 List&lt;Map&gt;
+     *
+     * @param string
+     * @param clazz  元素类型
+     * @return
+     */
+    public static <T> List<T> toListFromJson(String string, Class<T> clazz) {
+        return read(string, listReader(clazz));
+    }
+
+    private static <T> T read(String string, ObjectReader reader) {
         try {
-            return OBJECT_MAPPER.readValue(string, clazz);
+            return reader.readValue(string);
         } catch (Exception e) {
             throw new IllegalArgumentException(
                     "The given string value: " + string + " cannot be transformed to Json object", e);
         }
     }
 
+    /**
+     * 用于构造 {@link JavaType}
+     *
+     * @return
+     */
+    public static TypeFactory getTypeFactory() {
+        return OBJECT_MAPPER.getTypeFactory();
+    }
+
+    /**
+     * 直接解析 UTF-8（或带 BOM 的 UTF-16/32）字节，不解码为 String
+     *
+     * @param bytes
+     * @param clazz
+     * @return
+     */
+    public static <T> T fromJson(byte[] bytes, Class<T> clazz) {
+        return read(bytes, 0, bytes.length, reader(clazz));
+    }
+
+    public static <T> T fromJson(byte[] bytes, TypeReference<T> typeReference) {
+        return read(bytes, 0, bytes.length, reader(typeReference));
+    }
+
+    public static <T> T fromJson(byte[] bytes, JavaType javaType) {
+        return read(bytes, 0, bytes.length, reader(javaType));
+    }
+
+    /**
+     * 解析 buffer 中 position 到 limit 之间的字节，不改变 buffer 的 position
+     *
+     * @param buffer
+     * @param clazz
+     * @return
+     */
+    public static <T> T fromJson(ByteBuffer buffer, Class<T> clazz) {
+        return read(buffer, reader(clazz));
+    }
+
+    public static <T> T fromJson(ByteBuffer buffer, TypeReference<T> typeReference) {
+        return read(buffer, reader(typeReference));
+    }
+
+    private static <T> T read(byte[] bytes, int offset, int length, ObjectReader reader) {
+        try {
+            return reader.readValue(bytes, offset, length);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "The given bytes (" + length + ") cannot be transformed to Json object", e);
+        }
+    }
+
+    private static <T> T read(ByteBuffer buffer, ObjectReader reader) {
+        if (buffer.hasArray()) {
+            return read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), reader);
+        }
+        // 堆外内存按流读取，不整体拷贝
+        try {
+            return reader.readValue(new ByteBufferBackedInputStream(buffer.duplicate()));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "The given bytes (" + buffer.remaining() + ") cannot be transformed to Json object", e);
+        }
+    }
+
+    /**
+     * 直接从 UTF-8 字节流解析，不经过 String
+     *
+     * @param in    不会被关闭
+     * @param clazz
+     * @return
+     * @throws IOException
+     */
+    public static <T> T fromJson(InputStream in, Class<T> clazz) throws IOException {
+        return reader(clazz).readValue(CloseShieldInputStream.wrap(in));
+    }
+
+    public static <T> T fromJson(InputStream in, TypeReference<T> typeReference) throws IOException {
+        return reader(typeReference).readValue(CloseShieldInputStream.wrap(in));
+    }
+
+    public static <T> T fromJson(InputStream in, JavaType javaType) throws IOException {
+        return reader(javaType).readValue(CloseShieldInputStream.wrap(in));
+    }
+
+    /**
+     * 直接以 UTF-8 写入输出流，不经过 String
+     *
+     * @param value
+     * @param out   不会被关闭
+     * @throws IOException
+     */
+    public static void writeJson(Object value, OutputStream out) throws IOException {
+        writer(value).writeValue(CloseShieldOutputStream.wrap(out), value);
+    }
+
+    /**
+     * 序列化为 UTF-8 字节，不经过 String
+     *
+     * @param value
+     * @return
+     */
+    public static byte[] toJsonBytes(Object value) {
+        try {
+            return writer(value).writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(
+                    "The given Json object value: " + value + " cannot be transformed to bytes", e);
+        }
+    }
+
     public static String toJson(Object value) {
         try {
-            return OBJECT_MAPPER.writeValueAsString(value);
+            return writer(value).writeValueAsString(value);
         } catch (JsonProcessingException e) {
             throw new IllegalArgumentException(
                     "The given Json object value: " + value + " cannot be transformed to a String");
@@ -70,9 +284,25 @@ public class JacksonUtil {
         }
     }
 
+    /**
+     * 深拷贝，序列化为 token 序列再反序列化，不生成 json 文本，规则与 toJson/fromJson 一致（null 字段不复制）
+     *
+     * @param value
+     * @return value 为 null 时返回 null
+     */
     @SuppressWarnings("unchecked")
     public static <T> T clone(T value) {
-        return fromJson(toJson(value), (Class<T>) value.getClass());
+        if (value == null) {
+            return null;
+        }
+        try (TokenBuffer buffer = new TokenBuffer(OBJECT_MAPPER, false)) {
+            writer(value).writeValue(buffer, value);
+            try (JsonParser parser = buffer.asParser(OBJECT_MAPPER)) {
+                return (T) reader(value.getClass()).readValue(parser);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The given object value: " + value + " cannot be cloned", e);
+        }
     }
 
     /**
@@ -0,0 +1,128 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @Description 自适应并发限制，加性增、乘性减（AIMD）
+ *
+ * 请求正常返回时并发上限每轮增加 1，被对方限流（429/503）或超时时上限减半，
+ * 上限在 [1, maxLimit] 之间浮动，超过上限的请求排队等待
+ *
+ * @author zangrong
+ * @Date 2026-10-19 10:30
+ */
+public class AimdLimiter {
+
+    private static final double BACKOFF_RATIO = 0.5;
+
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private long decreases;
+
+    /**
+     * @param maxLimit 并发上限的最大值，也是初始值
+     */
+    public AimdLimiter(int maxLimit) {
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException("maxLimit 必须大于 0");
+        }
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * 获取一个并发名额，最多等待 timeout
+     *
+     * @param timeout
+     * @param unit
+     * @return 是否获取成功
+     * @throws InterruptedException
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = released.awaitNanos(nanos);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 请求结束后归还名额
+     *
+     * @param dropped 是否被对方限流或超时
+     */
+    public void release(boolean dropped) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (dropped) {
+                limit = Math.max(1, limit * BACKOFF_RATIO);
+                decreases++;
+            } else {
+                // 每个请求增加 1/limit，即每轮增加 1
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 上限被减半的次数
+     *
+     * @return
+     */
+    public long getDecreases() {
+        lock.lock();
+        try {
+            return decreases;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
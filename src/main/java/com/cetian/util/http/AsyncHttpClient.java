@@ -0,0 +1,421 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import com.cetian.util.ObjectUtil;
+import org.apache.http.HttpHeaders;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Description 基于 java.net.http.HttpClient 的非阻塞客户端
+ *
+ * 请求通过 NIO selector 发出，回调只占用少量线程；同时在途的请求数受 maxConcurrency 限制，
+ * 超出的请求排队等待，不会阻塞调用线程
+ *
+ * @author zangrong
+ * @Date 2026-10-18 10:20
+ */
+public class AsyncHttpClient implements AutoCloseable {
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final Duration requestTimeout;
+    private final int maxConcurrency;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final CompressionPolicy compression;
+    private volatile long maxBodySize = Long.MAX_VALUE;
+
+    /**
+     * @param connectTimeout 连接超时时间，毫秒
+     * @param requestTimeout 等待响应超时时间，毫秒
+     * @param maxConcurrency 同时在途的最大请求数
+     * @param threads        回调线程数
+     * @param sslContext     https 使用的 SSLContext
+     */
+    public AsyncHttpClient(int connectTimeout, int requestTimeout, int maxConcurrency, int threads,
+                           SSLContext sslContext) {
+        this(connectTimeout, requestTimeout, maxConcurrency, threads, sslContext, null);
+    }
+
+    /**
+     * @param connectTimeout 连接超时时间，毫秒
+     * @param requestTimeout 等待响应超时时间，毫秒
+     * @param maxConcurrency 同时在途的最大请求数
+     * @param threads        回调线程数
+     * @param sslContext     https 使用的 SSLContext
+     * @param compression    压缩策略，为 null 时不协商压缩
+     */
+    public AsyncHttpClient(int connectTimeout, int requestTimeout, int maxConcurrency, int threads,
+                           SSLContext sslContext, CompressionPolicy compression) {
+        this(connectTimeout, requestTimeout, maxConcurrency, threads, sslContext, compression, false);
+    }
+
+    /**
+     * @param connectTimeout 连接超时时间，毫秒
+     * @param requestTimeout 等待响应超时时间，毫秒
+     * @param maxConcurrency 同时在途的最大请求数
+     * @param threads        回调线程数
+     * @param sslContext     https 使用的 SSLContext
+     * @param compression    压缩策略，为 null 时不协商压缩
+     * @param http2          是否优先使用 HTTP/2，对方不支持时回落到 HTTP/1.1
+     */
+    public AsyncHttpClient(int connectTimeout, int requestTimeout, int maxConcurrency, int threads,
+                           SSLContext sslContext, CompressionPolicy compression, boolean http2) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("http-async-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(threads, threadFactory);
+        this.client = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeout))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .sslContext(sslContext)
+                .build();
+        this.requestTimeout = Duration.ofMillis(requestTimeout);
+        this.maxConcurrency = maxConcurrency;
+        this.compression = compression;
+    }
+
+    public CompletableFuture<Response> get(String url) {
+        return send(Request.get(url));
+    }
+
+    public CompletableFuture<Response> get(String url, Map<String, Object> params, Map<String, Object> headers) {
+        return send(Request.get(url).params(params).headers(headers));
+    }
+
+    public CompletableFuture<Response> postJson(String url, String json) {
+        return send(Request.postJson(url, json));
+    }
+
+    public CompletableFuture<Response> postJson(String url, Map<String, Object> headers, String json) {
+        return send(Request.postJson(url, json).headers(headers));
+    }
+
+    public CompletableFuture<Response> delete(String url, Map<String, Object> params, Map<String, Object> headers) {
+        return send(Request.delete(url).params(params).headers(headers));
+    }
+
+    /**
+     * 发送请求，超出并发上限时排队，返回的 future 在响应 body 读取完成后完成
+     *
+     * @param request
+     * @return
+     */
+    public CompletableFuture<Response> send(Request request) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        HttpRequest httpRequest;
+        try {
+            httpRequest = toHttpRequest(request);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        pending.add(() -> {
+            if (result.isDone()) {
+                // 排队期间已被调用方取消
+                release();
+                return;
+            }
+            try {
+                long maxSize = request.getMaxBodySize() > 0 ? request.getMaxBodySize() : maxBodySize;
+                CompletableFuture<HttpResponse<byte[]>> exchange = client.sendAsync(httpRequest,
+                        info -> new LimitedBodySubscriber(maxSize,
+                                info.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH).orElse(-1)));
+                exchange.whenComplete((response, e) -> {
+                    release();
+                    if (e != null) {
+                        result.completeExceptionally(e);
+                    } else {
+                        complete(result, response, maxSize);
+                    }
+                });
+                // 调用方取消时中止请求，释放连接
+                result.whenComplete((response, e) -> {
+                    if (result.isCancelled()) {
+                        exchange.cancel(true);
+                    }
+                });
+            } catch (RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+            }
+        });
+        dispatch();
+        return result;
+    }
+
+    /**
+     * 发送对冲请求：第一个请求超过 policy 计算的延迟仍未返回时，在预算内再发出一个相同请求，
+     * 先返回的结果生效，另一个被取消。只对 GET、HEAD 对冲，其他方法等同于 send
+     *
+     * @param request
+     * @param policy
+     * @return
+     */
+    public CompletableFuture<Response> sendHedged(Request request, HedgePolicy policy) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return send(request);
+        }
+        String host = hostOf(request);
+        long delay = policy.onRequest(host);
+        long start = System.nanoTime();
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        // 未结束的请求数，全部失败时才返回失败
+        AtomicInteger outstanding = new AtomicInteger(1);
+        CompletableFuture<Response> primary = send(request);
+        primary.whenComplete((response, e) -> onHedgeAttempt(result, outstanding, response, e, false, policy));
+        CompletableFuture.runAsync(() -> {
+            if (result.isDone() || !policy.tryHedge()) {
+                return;
+            }
+            outstanding.incrementAndGet();
+            CompletableFuture<Response> backup = send(request);
+            backup.whenComplete((response, e) -> onHedgeAttempt(result, outstanding, response, e, true, policy));
+            result.whenComplete((response, e) -> backup.cancel(true));
+        }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor));
+        result.whenComplete((response, e) -> {
+            primary.cancel(true);
+            if (e == null) {
+                policy.recordLatency(host, System.nanoTime() - start);
+            }
+        });
+        return result;
+    }
+
+    private void onHedgeAttempt(CompletableFuture<Response> result, AtomicInteger outstanding, Response response,
+                                Throwable e, boolean hedge, HedgePolicy policy) {
+        if (e == null) {
+            if (result.complete(response) && hedge) {
+                policy.onHedgeWin();
+            }
+        } else if (outstanding.decrementAndGet() == 0) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    public CompletableFuture<Response> getHedged(String url, Map<String, Object> params, Map<String, Object> headers,
+                                                 HedgePolicy policy) {
+        return sendHedged(Request.get(url).params(params).headers(headers), policy);
+    }
+
+    private static String hostOf(Request request) {
+        URI uri = request.toUri();
+        return uri.getScheme() + "://" + uri.getAuthority();
+    }
+
+    /**
+     * 设置默认允许的最大响应 body，超过时请求以 {@link ResponseTooLargeException} 失败
+     *
+     * @param maxBodySize 字节数
+     */
+    public void setMaxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * 当前在途的请求数
+     *
+     * @return
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 当前排队等待的请求数
+     *
+     * @return
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    private void complete(CompletableFuture<Response> result, HttpResponse<byte[]> response, long maxSize) {
+        Map<String, List<String>> headers = response.headers().map();
+        byte[] body = response.body();
+        String encoding = response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null);
+        if (compression != null && CompressionPolicy.isSupported(encoding)) {
+            try {
+                // 传输的字节数已受限，解压后的长度同样要受限
+                body = compression.decode(encoding, body, maxSize);
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            headers.putAll(response.headers().map());
+            headers.remove(HttpHeaders.CONTENT_ENCODING);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }
+        result.complete(new Response(response.statusCode(), headers, body));
+    }
+
+    private HttpRequest toHttpRequest(Request request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.toUri()).timeout(requestTimeout);
+        boolean acceptEncoding = false;
+        boolean contentEncoding = false;
+        for (Map.Entry<String, Object> header : request.getHeaders().entrySet()) {
+            builder.setHeader(header.getKey(), ObjectUtil.trimToEmpty(header.getValue()));
+            acceptEncoding |= HttpHeaders.ACCEPT_ENCODING.equalsIgnoreCase(header.getKey());
+            contentEncoding |= HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(header.getKey());
+        }
+        if (compression != null && !acceptEncoding) {
+            builder.setHeader(HttpHeaders.ACCEPT_ENCODING, compression.getAcceptEncoding());
+        }
+        byte[] body = request.getBody();
+        if (body == null) {
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            if (request.getContentType() != null) {
+                builder.setHeader("Content-Type", request.getContentType());
+            }
+            if (compression != null && !contentEncoding
+                    && compression.shouldCompress(body.length, request.getContentType())) {
+                try {
+                    body = compression.encode(body);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                builder.setHeader(HttpHeaders.CONTENT_ENCODING, compression.getRequestEncoding());
+            }
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(body));
+        }
+        return builder.build();
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        dispatch();
+    }
+
+    private void dispatch() {
+        while (!pending.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= maxConcurrency) {
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Runnable task = pending.poll();
+            if (task == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            task.run();
+        }
+    }
+
+    /**
+     * 关闭回调线程池，之后不能再发送请求
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 累积响应 body，超过上限时取消读取
+     */
+    private static class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+        /** 按声明长度预分配的上限，声明的长度不可信，超出的部分随读取扩容 */
+        private static final int MAX_PRESIZE = 64 * 1024;
+
+        private final long maxSize;
+        private final long contentLength;
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private ByteArrayOutputStream out;
+        private Flow.Subscription subscription;
+
+        LimitedBodySubscriber(long maxSize, long contentLength) {
+            this.maxSize = maxSize;
+            this.contentLength = contentLength;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (contentLength > maxSize) {
+                subscription.cancel();
+                body.completeExceptionally(new ResponseTooLargeException(maxSize));
+                return;
+            }
+            out = new ByteArrayOutputStream(contentLength > 0 ? (int) Math.min(contentLength, MAX_PRESIZE) : 8192);
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (body.isDone()) {
+                return;
+            }
+            for (ByteBuffer item : items) {
+                if (out.size() + (long) item.remaining() > maxSize) {
+                    subscription.cancel();
+                    body.completeExceptionally(new ResponseTooLargeException(maxSize));
+                    return;
+                }
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                out.write(bytes, 0, bytes.length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (!body.isDone()) {
+                body.complete(out.toByteArray());
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+/**
+ * @Description 按完成顺序处理批量请求的结果，在调用批量方法的线程上回调
+ *
+ *
+ *
+ * @author zangrong
+ * @Date 2026-10-19 11:20
+ */
+@FunctionalInterface
+public interface BatchHandler {
+
+    void onResult(BatchResult result);
+}
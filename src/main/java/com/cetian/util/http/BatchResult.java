@@ -0,0 +1,71 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+/**
+ * @Description 批量请求中单个请求的结果，成功时有 response，失败时有 error
+ *
+ * 非 2xx 响应也算成功返回，由调用方按状态码处理
+ *
+ * @author zangrong
+ * @Date 2026-10-19 11:20
+ */
+public class BatchResult {
+
+    private final int index;
+    private final Request request;
+    private final Response response;
+    private final Exception error;
+
+    public BatchResult(int index, Request request, Response response, Exception error) {
+        this.index = index;
+        this.request = request;
+        this.response = response;
+        this.error = error;
+    }
+
+    /**
+     * 请求在提交集合中的序号，从 0 开始
+     *
+     * @return
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Request getRequest() {
+        return request;
+    }
+
+    public Response getResponse() {
+        return response;
+    }
+
+    /**
+     * 网络异常、客户端限流或超过截止时间（{@link java.util.concurrent.TimeoutException}）
+     *
+     * @return
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null && response.isSuccessful();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult[" + index + " " + request + " " + (error == null ? response : error) + "]";
+    }
+}
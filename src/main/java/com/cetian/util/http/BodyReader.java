@@ -0,0 +1,128 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * @Description 限制长度地读取响应 body，超过上限时抛出 {@link ResponseTooLargeException}，
+ * Content-Length 已超过上限的不读取直接失败
+ *
+ * 失败时 body 流保持打开，调用方应直接关闭 CloseableHttpResponse 中止连接，而不是读完剩余数据
+ *
+ * @author zangrong
+ * @Date 2026-10-19 17:00
+ */
+public final class BodyReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private BodyReader() {
+    }
+
+    /**
+     * 读取完整的 body
+     *
+     * @param entity
+     * @param maxSize 最大字节数
+     * @return
+     * @throws IOException
+     */
+    public static byte[] toByteArray(HttpEntity entity, long maxSize) throws IOException {
+        long length = entity.getContentLength();
+        if (length > maxSize) {
+            throw new ResponseTooLargeException(maxSize);
+        }
+        // 预分配不超过 64KB，不按服务端声明的长度一次分配，也避免超过 2G 时溢出
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                length > 0 ? (int) Math.min(length, BUFFER_SIZE * 8L) : BUFFER_SIZE);
+        InputStream in = entity.getContent();
+        // 超过上限时不关闭流，关闭会读完剩余数据；由调用方关闭响应中止连接
+        limit(in, maxSize).transferTo(out);
+        in.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * 读取完整的 body 并按 Content-Type 中的字符集解码
+     *
+     * @param entity
+     * @param defaultCharset Content-Type 未声明字符集时使用
+     * @param maxSize        最大字节数
+     * @return
+     * @throws IOException
+     */
+    public static String toString(HttpEntity entity, Charset defaultCharset, long maxSize) throws IOException {
+        byte[] body = toByteArray(entity, maxSize);
+        Charset charset = null;
+        try {
+            ContentType contentType = ContentType.get(entity);
+            charset = contentType == null ? null : contentType.getCharset();
+        } catch (RuntimeException e) {
+            // 非法的 Content-Type 按默认字符集处理
+        }
+        return new String(body, charset == null ? defaultCharset : charset);
+    }
+
+    /**
+     * 限制可读取的字节数，超过时抛出 {@link ResponseTooLargeException}
+     *
+     * @param in
+     * @param maxSize
+     * @return
+     */
+    public static InputStream limit(InputStream in, long maxSize) {
+        return new FilterInputStream(in) {
+            private long remaining = maxSize;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    consume(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    consume(n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                consume(skipped);
+                return skipped;
+            }
+
+            private void consume(long n) throws ResponseTooLargeException {
+                remaining -= n;
+                if (remaining < 0) {
+                    throw new ResponseTooLargeException(maxSize);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @Description 一组阻塞调用的作用域，每个调用一个线程（Java 21 起为虚拟线程），共享一个截止时间
+ *
+ * 作用域关闭时取消所有未完成的调用。虚拟线程上阻塞的 socket 读写会响应中断，取消后连接立即关闭；
+ * 普通线程上的阻塞读写不响应中断，要等到 socketTimeout 才释放
+ *
+ * <pre>
+ * try (CallScope scope = HttpUtil.openScope(2000)) {
+ *     Future&lt;String&gt; user = scope.fork(() -&gt; HttpUtil.doGet(userUrl));
+ *     Future&lt;String&gt; order = scope.fork(() -&gt; HttpUtil.doGet(orderUrl));
+ *     scope.join();
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author zangrong
+ * @Date 2026-10-19 19:10
+ */
+public class CallScope implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final long deadline;
+    private final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param executor      作用域独占的执行器，关闭作用域时一并关闭
+     * @param timeoutMillis 从创建开始计算的截止时间
+     */
+    public CallScope(ExecutorService executor, long timeoutMillis) {
+        this.executor = executor;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * 在新线程中执行一个阻塞调用
+     *
+     * @param task
+     * @param <T>
+     * @return
+     * @throws java.util.concurrent.RejectedExecutionException 作用域已关闭
+     */
+    public <T> Future<T> fork(Callable<T> task) {
+        Future<T> future = executor.submit(task);
+        futures.add(future);
+        return future;
+    }
+
+    /**
+     * 等待所有调用结束，调用自身的异常通过各自的 {@link Future#get()} 获取
+     *
+     * @throws InterruptedException 等待中被中断，未完成的调用会被取消
+     * @throws TimeoutException     超过截止时间，未完成的调用会被取消
+     */
+    public void join() throws InterruptedException, TimeoutException {
+        try {
+            for (Future<?> future : futures) {
+                try {
+                    future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException | CancellationException e) {
+                    // 由调用方处理
+                }
+            }
+        } catch (TimeoutException e) {
+            cancel();
+            throw new TimeoutException("调用超过截止时间");
+        } catch (InterruptedException e) {
+            cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * 剩余时间，已超时返回 0
+     *
+     * @param unit
+     * @return
+     */
+    public long remaining(TimeUnit unit) {
+        return Math.max(0, unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * 中断并取消所有未完成的调用
+     */
+    public void cancel() {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 取消未完成的调用并关闭执行器，不等待被取消的线程退出
+     */
+    @Override
+    public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+}
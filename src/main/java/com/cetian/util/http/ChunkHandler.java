@@ -0,0 +1,34 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * @Description 按块处理响应 body，适合边读边写的大响应
+ *
+ *
+ *
+ * @author zangrong
+ * @Date 2026-10-18 14:05
+ */
+@FunctionalInterface
+public interface ChunkHandler {
+
+    /**
+     * @param chunk 本次读到的数据，处于可读状态；回调返回后缓冲区会被复用，需要保留数据时自行拷贝
+     * @throws IOException
+     */
+    void onChunk(ByteBuffer chunk) throws IOException;
+}
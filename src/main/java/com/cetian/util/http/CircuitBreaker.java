@@ -0,0 +1,142 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description 单个目标地址的熔断器
+ *
+ * 连续失败达到阈值后打开，打开期间请求直接拒绝；超过打开时长后进入半开状态，只放行一个探测请求，
+ * 探测成功则关闭，失败则重新打开
+ *
+ * @author zangrong
+ * @Date 2026-10-19 09:40
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String host;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder trips = new LongAdder();
+
+    CircuitBreaker(String host, int failureThreshold, long openMillis) {
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000;
+    }
+
+    /**
+     * 请求发出前调用，返回 false 表示熔断中应拒绝请求
+     *
+     * @return
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.nanoTime() - openedAt >= openNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            // 半开，只有切换成功的这个请求作为探测放行
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 放行后请求没有发出（如被客户端限流拒绝）时调用，半开状态退回熔断，下一个请求重新探测，
+     * 不计成功也不计失败
+     */
+    public void releaseProbe() {
+        state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    }
+
+    public void onSuccess() {
+        successes.increment();
+        consecutiveFailures.set(0);
+        state.compareAndSet(State.HALF_OPEN, State.CLOSED);
+    }
+
+    public void onFailure() {
+        failures.increment();
+        if (state.get() == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(State.CLOSED);
+        }
+    }
+
+    private void open(State from) {
+        if (state.compareAndSet(from, State.OPEN)) {
+            openedAt = System.nanoTime();
+            consecutiveFailures.set(0);
+            trips.increment();
+        }
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * 熔断期间被拒绝的请求数
+     *
+     * @return
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 熔断打开的次数
+     *
+     * @return
+     */
+    public long getTrips() {
+        return trips.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker[" + host + " " + state.get() + ", successes=" + getSuccesses() + ", failures="
+                + getFailures() + ", rejected=" + getRejected() + ", trips=" + getTrips() + "]";
+    }
+}
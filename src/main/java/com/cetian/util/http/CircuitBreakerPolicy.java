@@ -0,0 +1,65 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Description 按目标地址熔断的策略，每个 scheme://host:port 一个熔断器
+ *
+ * 网络异常和 5xx 响应计为失败
+ *
+ * @author zangrong
+ * @Date 2026-10-19 09:40
+ */
+public class CircuitBreakerPolicy {
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * @param failureThreshold 连续失败多少次后熔断
+     * @param openMillis       熔断持续时间，之后放行一个探测请求
+     */
+    public CircuitBreakerPolicy(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    public CircuitBreaker forHost(String host) {
+        return breakers.computeIfAbsent(host, key -> new CircuitBreaker(key, failureThreshold, openMillis));
+    }
+
+    /**
+     * 是否计为失败
+     *
+     * @param status
+     * @return
+     */
+    public boolean isFailure(int status) {
+        return status >= 500;
+    }
+
+    public Collection<CircuitBreaker> getBreakers() {
+        return Collections.unmodifiableCollection(breakers.values());
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerPolicy" + breakers.values();
+    }
+}
@@ -0,0 +1,416 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @Description 请求和响应的压缩协商
+ *
+ * 所有请求声明 Accept-Encoding: gzip, deflate 并透明解压响应；配置了请求编码时，
+ * 文本类（json、xml、text、表单）且不小于阈值的请求 body 会被压缩，已声明 Content-Encoding 的不再处理。
+ * 同时统计压缩前后的字节数，用于评估节省的流量
+ *
+ * @author zangrong
+ * @Date 2026-10-19 13:10
+ */
+public class CompressionPolicy implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final String ACCEPT_ENCODING = GZIP + ", " + DEFLATE;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String requestEncoding;
+    private final long minRequestSize;
+
+    private final LongAdder compressedRequests = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder requestWireBytes = new LongAdder();
+    private final LongAdder compressedResponses = new LongAdder();
+    private final LongAdder responseWireBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+    /**
+     * 只协商响应压缩，请求 body 不压缩
+     */
+    public CompressionPolicy() {
+        this(null, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param requestEncoding 请求 body 的压缩算法，gzip 或 deflate，为 null 时不压缩请求
+     * @param minRequestSize  请求 body 不小于多少字节才压缩，长度未知的 body 总是压缩
+     */
+    public CompressionPolicy(String requestEncoding, long minRequestSize) {
+        if (requestEncoding != null && !GZIP.equals(requestEncoding) && !DEFLATE.equals(requestEncoding)) {
+            throw new IllegalArgumentException("不支持的压缩算法 " + requestEncoding);
+        }
+        this.requestEncoding = requestEncoding;
+        this.minRequestSize = minRequestSize;
+    }
+
+    public String getAcceptEncoding() {
+        return ACCEPT_ENCODING;
+    }
+
+    public String getRequestEncoding() {
+        return requestEncoding;
+    }
+
+    /**
+     * 请求 body 是否需要压缩
+     *
+     * @param length      body 长度，未知时为负数
+     * @param contentType
+     * @return
+     */
+    public boolean shouldCompress(long length, String contentType) {
+        if (requestEncoding == null || contentType == null) {
+            return false;
+        }
+        if (length >= 0 && length < minRequestSize) {
+            return false;
+        }
+        String mimeType;
+        try {
+            mimeType = ContentType.parse(contentType).getMimeType().toLowerCase(Locale.ROOT);
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return mimeType.startsWith("text/") || mimeType.endsWith("/json") || mimeType.endsWith("+json")
+                || mimeType.endsWith("/xml") || mimeType.endsWith("+xml")
+                || mimeType.equals(ContentType.APPLICATION_FORM_URLENCODED.getMimeType());
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        if (!request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+        }
+        if (!(request instanceof HttpEntityEnclosingRequest)) {
+            return;
+        }
+        HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+        HttpEntity entity = enclosing.getEntity();
+        // 重试时同一个请求会再次经过这里，已压缩的 entity 带有 Content-Encoding，不会重复压缩
+        if (entity == null || entity.getContentEncoding() != null
+                || !shouldCompress(entity.getContentLength(), headerValue(entity.getContentType()))) {
+            return;
+        }
+        enclosing.setEntity(new CompressingEntity(entity));
+        compressedRequests.increment();
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        HttpEntity entity = response.getEntity();
+        if (entity == null || entity.getContentLength() == 0) {
+            return;
+        }
+        String encoding = normalize(headerValue(entity.getContentEncoding()));
+        if (encoding == null) {
+            return;
+        }
+        response.setEntity(new DecodingEntity(entity, encoding));
+        response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+        response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+        response.removeHeaders(HttpHeaders.CONTENT_MD5);
+        compressedResponses.increment();
+    }
+
+    /**
+     * 压缩请求 body，用于非阻塞客户端
+     *
+     * @param body
+     * @return
+     * @throws IOException
+     */
+    public byte[] encode(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream os = compressor(out)) {
+            os.write(body);
+        }
+        requestBytes.add(body.length);
+        requestWireBytes.add(out.size());
+        compressedRequests.increment();
+        return out.toByteArray();
+    }
+
+    /**
+     * 按 Content-Encoding 解压响应 body，不限制解压后的长度，只用于可信的数据
+     *
+     * @param contentEncoding 响应的 Content-Encoding
+     * @param body
+     * @return 不认识的编码原样返回
+     * @throws IOException
+     */
+    public byte[] decode(String contentEncoding, byte[] body) throws IOException {
+        return decode(contentEncoding, body, Long.MAX_VALUE);
+    }
+
+    /**
+     * 按 Content-Encoding 解压响应 body，用于非阻塞客户端。
+     * 按解压后的长度限制，避免很小的压缩包解压出超大的数据
+     *
+     * @param contentEncoding 响应的 Content-Encoding
+     * @param body
+     * @param maxSize         解压后的最大字节数
+     * @return 不认识的编码原样返回
+     * @throws ResponseTooLargeException 解压后超过 maxSize
+     * @throws IOException
+     */
+    public byte[] decode(String contentEncoding, byte[] body, long maxSize) throws IOException {
+        String encoding = normalize(contentEncoding);
+        if (encoding == null || body.length == 0) {
+            return body;
+        }
+        byte[] decoded;
+        try (InputStream is = BodyReader.limit(decompressor(new ByteArrayInputStream(body), encoding), maxSize)) {
+            decoded = is.readAllBytes();
+        }
+        responseWireBytes.add(body.length);
+        responseBytes.add(decoded.length);
+        compressedResponses.increment();
+        return decoded;
+    }
+
+    /**
+     * 是否为支持解压的编码
+     *
+     * @param contentEncoding
+     * @return
+     */
+    public static boolean isSupported(String contentEncoding) {
+        return normalize(contentEncoding) != null;
+    }
+
+    private static String normalize(String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        }
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (GZIP.equals(encoding) || "x-gzip".equals(encoding)) {
+            return GZIP;
+        }
+        return DEFLATE.equals(encoding) ? DEFLATE : null;
+    }
+
+    private OutputStream compressor(OutputStream out) throws IOException {
+        return GZIP.equals(requestEncoding) ? new GZIPOutputStream(out, BUFFER_SIZE)
+                : new DeflaterOutputStream(out);
+    }
+
+    private static InputStream decompressor(InputStream in, String encoding) throws IOException {
+        // deflate 兼容带 zlib 头和不带头的两种格式
+        return GZIP.equals(encoding) ? new GZIPInputStream(in, BUFFER_SIZE) : new DeflateInputStream(in);
+    }
+
+    private static String headerValue(Header header) {
+        return header == null ? null : header.getValue();
+    }
+
+    public long getCompressedRequests() {
+        return compressedRequests.sum();
+    }
+
+    /**
+     * 被压缩的请求 body 压缩前的字节数
+     *
+     * @return
+     */
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    /**
+     * 被压缩的请求 body 实际发送的字节数
+     *
+     * @return
+     */
+    public long getRequestWireBytes() {
+        return requestWireBytes.sum();
+    }
+
+    public long getCompressedResponses() {
+        return compressedResponses.sum();
+    }
+
+    /**
+     * 压缩响应实际接收的字节数
+     *
+     * @return
+     */
+    public long getResponseWireBytes() {
+        return responseWireBytes.sum();
+    }
+
+    /**
+     * 压缩响应解压后的字节数
+     *
+     * @return
+     */
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionPolicy[requests=" + getCompressedRequests() + " " + getRequestBytes() + "->"
+                + getRequestWireBytes() + " bytes, responses=" + getCompressedResponses() + " "
+                + getResponseWireBytes() + "->" + getResponseBytes() + " bytes]";
+    }
+
+    /**
+     * 写出时压缩，长度未知，按 chunked 发送
+     */
+    private class CompressingEntity extends HttpEntityWrapper {
+
+        CompressingEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public Header getContentEncoding() {
+            return new BasicHeader(HttpHeaders.CONTENT_ENCODING, requestEncoding);
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public boolean isChunked() {
+            return true;
+        }
+
+        /**
+         * 压缩到内存后返回，供需要读取 body 的拦截器等使用，不计入字节统计；
+         * 原 body 不可重复读取时，读取后不能再发送
+         */
+        @Override
+        public InputStream getContent() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (OutputStream compressor = compressor(out)) {
+                wrappedEntity.writeTo(compressor);
+            }
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            OutputStream wire = new ProxyOutputStream(out) {
+                @Override
+                protected void afterWrite(int n) {
+                    requestWireBytes.add(n);
+                }
+
+                @Override
+                public void close() {
+                    // 底层连接的输出流由连接池管理，不关闭
+                }
+            };
+            OutputStream compressor = compressor(wire);
+            OutputStream counting = new ProxyOutputStream(compressor) {
+                @Override
+                protected void afterWrite(int n) {
+                    requestBytes.add(n);
+                }
+            };
+            wrappedEntity.writeTo(counting);
+            counting.close();
+        }
+    }
+
+    /**
+     * 读取时解压
+     */
+    private class DecodingEntity extends HttpEntityWrapper {
+
+        private final String encoding;
+        private InputStream content;
+
+        DecodingEntity(HttpEntity entity, String encoding) {
+            super(entity);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public Header getContentEncoding() {
+            return null;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            if (wrappedEntity.isStreaming() && content != null) {
+                return content;
+            }
+            InputStream wire = new ProxyInputStream(wrappedEntity.getContent()) {
+                @Override
+                protected void afterRead(int n) {
+                    if (n > 0) {
+                        responseWireBytes.add(n);
+                    }
+                }
+            };
+            content = new ProxyInputStream(decompressor(wire, encoding)) {
+                @Override
+                protected void afterRead(int n) {
+                    if (n > 0) {
+                        responseBytes.add(n);
+                    }
+                }
+            };
+            return content;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            try (InputStream is = getContent()) {
+                is.transferTo(out);
+            }
+        }
+    }
+}
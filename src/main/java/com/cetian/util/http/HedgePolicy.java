@@ -0,0 +1,156 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description 对冲请求策略
+ *
+ * 第一个请求在该目标地址历史耗时的某个分位数（如 p95）内没有返回时，再发出一个相同的请求，
+ * 先返回的结果生效，另一个取消。对冲请求受预算限制：每个请求积累 budgetPercent% 个令牌，
+ * 每次对冲消耗一个，防止服务端整体变慢时请求量翻倍
+ *
+ * @author zangrong
+ * @Date 2026-10-19 11:00
+ */
+public class HedgePolicy {
+
+    // 统计样本少于该数量时使用默认延迟
+    private static final int MIN_SAMPLES = 20;
+    // 对冲延迟的重新计算间隔
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // 令牌以千分之一为单位
+    private static final long TOKEN = 1000;
+    // 最多积累的令牌数，允许短时间的突发
+    private static final long MAX_TOKENS = 10 * TOKEN;
+
+    private final double percentile;
+    private final long defaultDelayMillis;
+    private final long tokensPerRequest;
+    private final AtomicLong tokens = new AtomicLong(MAX_TOKENS);
+    private final ConcurrentMap<String, HostLatency> latencies = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    /**
+     * @param percentile         超过该分位数耗时仍未返回时发出对冲请求，如 95
+     * @param defaultDelayMillis 样本不足时的对冲延迟
+     * @param budgetPercent      对冲请求占总请求数的上限百分比，如 10
+     */
+    public HedgePolicy(double percentile, long defaultDelayMillis, double budgetPercent) {
+        this.percentile = percentile;
+        this.defaultDelayMillis = defaultDelayMillis;
+        this.tokensPerRequest = Math.round(budgetPercent / 100 * TOKEN);
+    }
+
+    /**
+     * 发出第一个请求时调用，返回对冲延迟
+     *
+     * @param host
+     * @return 毫秒
+     */
+    long onRequest(String host) {
+        requests.increment();
+        tokens.accumulateAndGet(tokensPerRequest, (current, add) -> Math.min(MAX_TOKENS, current + add));
+        return latencies.computeIfAbsent(host, key -> new HostLatency()).delayMillis();
+    }
+
+    /**
+     * 是否还有对冲预算
+     *
+     * @return
+     */
+    boolean tryHedge() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                budgetExhausted.increment();
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        hedged.increment();
+        return true;
+    }
+
+    void onHedgeWin() {
+        hedgeWins.increment();
+    }
+
+    void recordLatency(String host, long nanos) {
+        latencies.computeIfAbsent(host, key -> new HostLatency()).histogram.recordNanos(nanos);
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * 发出对冲请求的次数
+     *
+     * @return
+     */
+    public long getHedged() {
+        return hedged.sum();
+    }
+
+    /**
+     * 对冲请求先于第一个请求返回的次数
+     *
+     * @return
+     */
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * 因预算不足没有对冲的次数
+     *
+     * @return
+     */
+    public long getBudgetExhausted() {
+        return budgetExhausted.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "HedgePolicy[p" + percentile + ", requests=" + getRequests() + ", hedged=" + getHedged()
+                + ", hedgeWins=" + getHedgeWins() + ", budgetExhausted=" + getBudgetExhausted() + "]";
+    }
+
+    private class HostLatency {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        volatile long delayMillis = defaultDelayMillis;
+        volatile long refreshedAt = System.nanoTime();
+
+        long delayMillis() {
+            long now = System.nanoTime();
+            if (now - refreshedAt >= REFRESH_NANOS) {
+                refreshedAt = now;
+                LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+                if (snapshot.getCount() >= MIN_SAMPLES) {
+                    delayMillis = Math.max(1, TimeUnit.MICROSECONDS.toMillis(snapshot.getPercentile(percentile)));
+                }
+            }
+            return delayMillis;
+        }
+    }
+}
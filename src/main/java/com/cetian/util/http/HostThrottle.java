@@ -0,0 +1,231 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description 单个目标地址的限流器，先取令牌再取并发名额
+ *
+ *
+ *
+ * @author zangrong
+ * @Date 2026-10-19 10:30
+ */
+public class HostThrottle {
+
+    private final String host;
+    private final TokenBucket rate;
+    private final AimdLimiter concurrency;
+    private final long maxWaitNanos;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    HostThrottle(String host, TokenBucket rate, AimdLimiter concurrency, long maxWaitMillis) {
+        this.host = host;
+        this.rate = rate;
+        this.concurrency = concurrency;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /**
+     * 请求发出前调用，成功后必须调用 {@link #release(boolean)}
+     *
+     * @throws ThrottledException   等待超时
+     * @throws InterruptedIOException 等待被中断
+     */
+    public void acquire() throws IOException {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        try {
+            if (rate != null && !rate.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                throw new ThrottledException(host, "rate");
+            }
+            if (concurrency != null
+                    && !concurrency.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                // 请求没有发出，令牌还给后面的请求
+                if (rate != null) {
+                    rate.refund();
+                }
+                rejected.increment();
+                throw new ThrottledException(host, "concurrency");
+            }
+        } catch (InterruptedException e) {
+            if (rate != null) {
+                rate.refund();
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("限流等待被中断");
+        }
+        acquired.increment();
+    }
+
+    /**
+     * 请求结束后调用
+     *
+     * @param dropped 是否被对方限流或超时，是则收缩并发上限
+     */
+    public void release(boolean dropped) {
+        if (dropped) {
+            this.dropped.increment();
+        }
+        if (concurrency != null) {
+            concurrency.release(dropped);
+        }
+    }
+
+    /**
+     * 收到响应后调用，body 读完或响应关闭时才调用 {@link #release(boolean)}，读取 body 期间仍占着并发名额
+     *
+     * @param response
+     * @param dropped  是否被对方限流
+     * @return
+     */
+    public CloseableHttpResponse track(CloseableHttpResponse response, boolean dropped) {
+        return new ThrottledResponse(response, dropped);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * 当前的自适应并发上限，没有并发限制时返回 -1
+     *
+     * @return
+     */
+    public int getConcurrencyLimit() {
+        return concurrency == null ? -1 : concurrency.getLimit();
+    }
+
+    public int getInFlight() {
+        return concurrency == null ? 0 : concurrency.getInFlight();
+    }
+
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    /**
+     * 客户端限流拒绝的请求数
+     *
+     * @return
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 被对方限流或超时的请求数
+     *
+     * @return
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "HostThrottle[" + host + " limit=" + getConcurrencyLimit() + ", inFlight=" + getInFlight()
+                + ", acquired=" + getAcquired() + ", rejected=" + getRejected() + ", dropped=" + getDropped() + "]";
+    }
+
+    /**
+     * 关闭时关闭原始响应并归还并发名额，body 读完时提前归还
+     */
+    private class ThrottledResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        private final CloseableHttpResponse response;
+        private final boolean dropped;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ThrottledResponse(CloseableHttpResponse response, boolean dropped) {
+            super(response.getStatusLine());
+            this.response = response;
+            this.dropped = dropped;
+            setHeaders(response.getAllHeaders());
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                done();
+            } else {
+                setEntity(new ThrottledEntity(entity));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                response.close();
+            } finally {
+                done();
+            }
+        }
+
+        private void done() {
+            if (released.compareAndSet(false, true)) {
+                release(dropped);
+            }
+        }
+
+        private class ThrottledEntity extends HttpEntityWrapper {
+
+            ThrottledEntity(HttpEntity entity) {
+                super(entity);
+            }
+
+            @Override
+            public InputStream getContent() throws IOException {
+                return new ProxyInputStream(wrappedEntity.getContent()) {
+                    @Override
+                    protected void afterRead(int n) {
+                        if (n < 0) {
+                            done();
+                        }
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            done();
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try {
+                    wrappedEntity.writeTo(out);
+                } finally {
+                    done();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description 基于 java.net.http.HttpClient 的 HTTP/2 传输，请求和响应与 HttpClient 4 的类型互相转换，
+ * 使 HttpUtil 的现有方法可以不改签名切换到 HTTP/2
+ *
+ * https 通过 ALPN 协商 HTTP/2，http 通过 h2c 升级，对方不支持时自动回落到 HTTP/1.1。
+ * 同一地址的并发请求在少量连接上多路复用，不再一个请求占一个连接。
+ * 响应 body 以流的方式返回；请求 body 会先完整写入内存再发送
+ *
+ * @author zangrong
+ * @Date 2026-10-19 14:30
+ */
+public class Http2Transport implements AutoCloseable {
+
+    private static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+    // java.net.http 自行管理的 header，不能手动设置
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        RESTRICTED_HEADERS.addAll(List.of(HttpHeaders.CONNECTION, HttpHeaders.CONTENT_LENGTH, HttpHeaders.EXPECT,
+                HttpHeaders.HOST, HttpHeaders.UPGRADE, HttpHeaders.TRANSFER_ENCODING, "Keep-Alive"));
+    }
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final RequestConfig defaultConfig;
+    private final CompressionPolicy compression;
+
+    private final LongAdder http2Responses = new LongAdder();
+    private final LongAdder http11Responses = new LongAdder();
+
+    /**
+     * @param defaultConfig 请求未单独设置时使用的连接和读取超时
+     * @param sslContext    https 使用的 SSLContext，证书域名总是校验
+     * @param compression   压缩策略，为 null 时不协商压缩
+     * @param threads       处理连接读写和回调的线程数，调用方线程阻塞等待结果，不占用这些线程
+     */
+    public Http2Transport(RequestConfig defaultConfig, SSLContext sslContext, CompressionPolicy compression,
+            int threads) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("http2-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(threads, threadFactory);
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .sslContext(sslContext);
+        if (defaultConfig.getConnectTimeout() > 0) {
+            builder.connectTimeout(Duration.ofMillis(defaultConfig.getConnectTimeout()));
+        }
+        this.client = builder.build();
+        this.defaultConfig = defaultConfig;
+        this.compression = compression;
+    }
+
+    /**
+     * 同步发送请求，等待响应头返回；调用方负责关闭响应
+     *
+     * @param request
+     * @return
+     * @throws IOException
+     */
+    public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+        if (compression != null) {
+            compression.process(request, null);
+        }
+        CompletableFuture<HttpResponse<InputStream>> exchange = client.sendAsync(toHttpRequest(request),
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (request instanceof HttpRequestBase) {
+            // HttpRequestBase.abort() 时取消请求
+            ((HttpRequestBase) request).setCancellable(() -> exchange.cancel(true));
+        }
+        HttpResponse<InputStream> response;
+        try {
+            response = exchange.get();
+        } catch (InterruptedException e) {
+            exchange.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("请求被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+        CloseableHttpResponse httpResponse = toHttpResponse(response);
+        if (compression != null) {
+            compression.process(httpResponse, null);
+        }
+        return httpResponse;
+    }
+
+    private HttpRequest toHttpRequest(HttpUriRequest request) throws IOException {
+        RequestConfig config = request instanceof Configurable && ((Configurable) request).getConfig() != null
+                ? ((Configurable) request).getConfig() : defaultConfig;
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getURI());
+        if (config.getSocketTimeout() > 0) {
+            builder.timeout(Duration.ofMillis(config.getSocketTimeout()));
+        }
+        for (Header header : request.getAllHeaders()) {
+            if (!RESTRICTED_HEADERS.contains(header.getName())) {
+                builder.header(header.getName(), header.getValue());
+            }
+        }
+        HttpEntity entity = request instanceof HttpEntityEnclosingRequest
+                ? ((HttpEntityEnclosingRequest) request).getEntity() : null;
+        if (entity == null) {
+            return builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody()).build();
+        }
+        if (entity.getContentType() != null) {
+            builder.setHeader(HttpHeaders.CONTENT_TYPE, entity.getContentType().getValue());
+        }
+        if (entity.getContentEncoding() != null) {
+            builder.setHeader(HttpHeaders.CONTENT_ENCODING, entity.getContentEncoding().getValue());
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(
+                entity.getContentLength() > 0 ? (int) Math.min(entity.getContentLength(), Integer.MAX_VALUE - 8) : 1024);
+        entity.writeTo(body);
+        return builder.method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private CloseableHttpResponse toHttpResponse(HttpResponse<InputStream> response) {
+        ProtocolVersion version;
+        if (response.version() == HttpClient.Version.HTTP_2) {
+            http2Responses.increment();
+            version = HTTP_2;
+        } else {
+            http11Responses.increment();
+            version = HttpVersion.HTTP_1_1;
+        }
+        Http2Response httpResponse = new Http2Response(version, response.statusCode(), response.body());
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            // 跳过 HTTP/2 的伪 header，如 :status
+            if (header.getKey().startsWith(":")) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                httpResponse.addHeader(header.getKey(), value);
+            }
+        }
+        long length = response.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH).orElse(-1);
+        InputStreamEntity entity = new InputStreamEntity(response.body(), length);
+        response.headers().firstValue(HttpHeaders.CONTENT_TYPE).ifPresent(entity::setContentType);
+        response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).ifPresent(entity::setContentEncoding);
+        httpResponse.setEntity(entity);
+        return httpResponse;
+    }
+
+    /**
+     * 以 HTTP/2 完成的响应数
+     *
+     * @return
+     */
+    public long getHttp2Responses() {
+        return http2Responses.sum();
+    }
+
+    /**
+     * 对方不支持 HTTP/2，回落到 HTTP/1.1 的响应数
+     *
+     * @return
+     */
+    public long getHttp11Responses() {
+        return http11Responses.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "Http2Transport[http2=" + getHttp2Responses() + ", http1.1=" + getHttp11Responses() + "]";
+    }
+
+    /**
+     * 关闭时关闭原始 body 流，HTTP/2 下只取消对应的 stream，连接继续复用
+     */
+    private static class Http2Response extends BasicHttpResponse implements CloseableHttpResponse {
+
+        private final InputStream body;
+
+        Http2Response(ProtocolVersion version, int status, InputStream body) {
+            super(version, status, null);
+            this.body = body;
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+}
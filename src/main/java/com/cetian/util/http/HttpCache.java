@@ -0,0 +1,122 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.http.client.cache.CacheResponseStatus;
+import org.apache.http.client.cache.HttpCacheContext;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description GET 响应缓存
+ *
+ * 基于 httpclient-cache：按 Cache-Control、Expires 判断是否新鲜，过期后带 If-None-Match/If-Modified-Since
+ * 重新验证，服务端返回 304 时直接使用内存中的内容；缓存条目数有上限，超出时淘汰最久未使用的条目。
+ * 同时统计命中情况，用于评估缓存大小
+ *
+ * @author zangrong
+ * @Date 2026-10-18 19:10
+ */
+public class HttpCache implements Closeable {
+
+    private final CloseableHttpClient client;
+    // 直接使用缓存
+    private final LongAdder hits = new LongAdder();
+    // 未命中，请求了服务端
+    private final LongAdder misses = new LongAdder();
+    // 缓存过期，服务端验证后（304）继续使用缓存
+    private final LongAdder validated = new LongAdder();
+    // 缓存模块直接生成的响应，如 only-if-cached 未命中时的 504
+    private final LongAdder moduleResponses = new LongAdder();
+
+    /**
+     * @param client 由 CachingHttpClientBuilder 创建的客户端
+     */
+    public HttpCache(CloseableHttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 只有 GET 请求走缓存
+     *
+     * @param request
+     * @return
+     */
+    public boolean isCacheable(HttpUriRequest request) {
+        return "GET".equals(request.getMethod());
+    }
+
+    public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+        HttpCacheContext context = HttpCacheContext.create();
+        CloseableHttpResponse response = client.execute(request, context);
+        CacheResponseStatus status = context.getCacheResponseStatus();
+        if (status != null) {
+            switch (status) {
+                case CACHE_HIT:
+                    hits.increment();
+                    break;
+                case VALIDATED:
+                    validated.increment();
+                    break;
+                case CACHE_MODULE_RESPONSE:
+                    moduleResponses.increment();
+                    break;
+                default:
+                    misses.increment();
+            }
+        }
+        return response;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getValidated() {
+        return validated.sum();
+    }
+
+    public long getModuleResponses() {
+        return moduleResponses.sum();
+    }
+
+    /**
+     * 命中率，验证后使用缓存的也算命中
+     *
+     * @return
+     */
+    public double getHitRatio() {
+        long hit = getHits() + getValidated();
+        long total = hit + getMisses();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    @Override
+    public String toString() {
+        return "HttpCache[hits=" + getHits() + ", validated=" + getValidated() + ", misses=" + getMisses() + "]";
+    }
+}
@@ -0,0 +1,313 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description 记录从连接池获取连接等待时间的连接池
+ *
+ * 开启请求耗时统计时，同时把取连接和建连的耗时记到当前请求的 {@link RequestTiming}
+ *
+ * httpcore 4.4 的 AbstractConnPool 在 synchronized 块中等待空闲连接，虚拟线程在其中等待会占住载体线程，
+ * 载体线程全部被占住时持有连接的请求也无法继续执行。因此按每个地址的连接上限和总上限各设一个信号量，
+ * 借连接前先取得许可，超出上限的调用在信号量上等待，进入连接池时一定有可用的连接额度
+ *
+ * @author zangrong
+ * @Date 2026-10-18 21:15
+ */
+public class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final LatencyHistogram leaseWait = new LatencyHistogram();
+    private final LongAdder leaseTimeouts = new LongAdder();
+    private final LeaseGate totalGate = new LeaseGate(getMaxTotal());
+    private final Map<HttpRoute, LeaseGate> routeGates = new ConcurrentHashMap<>();
+    /** 借出中的连接对应的地址，归还时释放许可 */
+    private final Map<HttpClientConnection, HttpRoute> leased = new ConcurrentHashMap<>();
+
+    public InstrumentedConnectionManager() {
+        super();
+    }
+
+    public InstrumentedConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry) {
+        super(socketFactoryRegistry);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest request = lease(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, timeUnit);
+                } catch (ConnectionPoolTimeoutException e) {
+                    leaseTimeouts.increment();
+                    throw e;
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    leaseWait.recordNanos(elapsed);
+                    RequestTiming timing = RequestTiming.current();
+                    if (timing != null) {
+                        timing.add(RequestTiming.Phase.LEASE, elapsed);
+                    }
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    /**
+     * 先取得地址和总数的许可再向连接池借连接，许可在连接归还时释放
+     *
+     * @param route
+     * @param state
+     * @return
+     */
+    private ConnectionRequest lease(HttpRoute route, Object state) {
+        ConnectionRequest request = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                // timeout 不大于 0 表示一直等待，与连接池一致
+                long deadline = timeout > 0 ? System.nanoTime() + timeUnit.toNanos(timeout) : 0;
+                LeaseGate routeGate = routeGates.computeIfAbsent(route, r -> new LeaseGate(getMaxPerRoute(r)));
+                routeGate.enter(deadline);
+                try {
+                    totalGate.enter(deadline);
+                } catch (InterruptedException | ConnectionPoolTimeoutException e) {
+                    routeGate.release();
+                    throw e;
+                }
+                HttpClientConnection conn = null;
+                try {
+                    long remaining = deadline == 0 ? 0 : Math.max(1, deadline - System.nanoTime());
+                    conn = request.get(remaining, TimeUnit.NANOSECONDS);
+                    leased.put(conn, route);
+                    return conn;
+                } finally {
+                    if (conn == null) {
+                        totalGate.release();
+                        routeGate.release();
+                    }
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection managedConn, Object state, long keepalive, TimeUnit timeUnit) {
+        try {
+            super.releaseConnection(managedConn, state, keepalive, timeUnit);
+        } finally {
+            // 连接放回池中之后再释放许可，取得许可的调用进入连接池时不会再等待
+            HttpRoute route = leased.remove(managedConn);
+            if (route != null) {
+                totalGate.release();
+                routeGates.get(route).release();
+            }
+        }
+    }
+
+    @Override
+    public void setMaxTotal(int max) {
+        super.setMaxTotal(max);
+        totalGate.resize(max);
+    }
+
+    @Override
+    public void setDefaultMaxPerRoute(int max) {
+        super.setDefaultMaxPerRoute(max);
+        routeGates.forEach((route, gate) -> gate.resize(getMaxPerRoute(route)));
+    }
+
+    @Override
+    public void setMaxPerRoute(HttpRoute route, int max) {
+        super.setMaxPerRoute(route, max);
+        LeaseGate gate = routeGates.get(route);
+        if (gate != null) {
+            gate.resize(max);
+        }
+    }
+
+    @Override
+    public void connect(HttpClientConnection managedConn, HttpRoute route, int connectTimeout, HttpContext context)
+            throws IOException {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            super.connect(managedConn, route, connectTimeout, context);
+            return;
+        }
+        long start = System.nanoTime();
+        long tls = timing.getNanos(RequestTiming.Phase.TLS);
+        try {
+            super.connect(managedConn, route, connectTimeout, context);
+        } finally {
+            // https 的握手在建连中完成，由 InstrumentedSslSocketFactory 单独记录
+            long handshake = timing.getNanos(RequestTiming.Phase.TLS) - tls;
+            timing.add(RequestTiming.Phase.CONNECT, System.nanoTime() - start - handshake);
+        }
+    }
+
+    /**
+     * 预先建立到某个目标地址的连接（https 包括 TLS 握手）并放回连接池，池中已有的空闲连接计入在内
+     *
+     * @param route
+     * @param connections    期望的连接数，超过该地址的连接上限时按上限
+     * @param connectTimeout 建连超时，毫秒
+     * @param leaseTimeout   从连接池获取连接的超时，毫秒
+     * @param keepAlive      连接在池中的保留时间，毫秒
+     * @return 预热后可用的连接数
+     * @throws InterruptedException
+     */
+    public int prewarm(HttpRoute route, int connections, int connectTimeout, long leaseTimeout, long keepAlive)
+            throws InterruptedException {
+        int count = Math.min(connections, getMaxPerRoute(route));
+        List<HttpClientConnection> prewarmed = new ArrayList<>(count);
+        int ready = 0;
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("http-prewarm-");
+        try {
+            // 先全部借出，避免反复拿到同一个连接；不经过 requestConnection，不计入等待时间统计
+            for (int i = 0; i < count; i++) {
+                try {
+                    prewarmed.add(lease(route, null).get(leaseTimeout, TimeUnit.MILLISECONDS));
+                } catch (ConnectionPoolTimeoutException | ExecutionException e) {
+                    break;
+                }
+            }
+            List<Future<?>> futures = new ArrayList<>(prewarmed.size());
+            for (HttpClientConnection conn : prewarmed) {
+                futures.add(executor.submit(() -> {
+                    if (!conn.isOpen()) {
+                        HttpClientContext context = HttpClientContext.create();
+                        connect(conn, route, connectTimeout, context);
+                        routeComplete(conn, route, context);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                    ready++;
+                } catch (ExecutionException e) {
+                    // 建连失败的连接在释放时丢弃
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            for (HttpClientConnection conn : prewarmed) {
+                releaseConnection(conn, null, keepAlive, TimeUnit.MILLISECONDS);
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * 获取连接的等待时间
+     *
+     * @return
+     */
+    public LatencyHistogram getLeaseWait() {
+        return leaseWait;
+    }
+
+    /**
+     * 等待超过 connectionRequestTimeout 而失败的次数
+     *
+     * @return
+     */
+    public long getLeaseTimeouts() {
+        return leaseTimeouts.sum();
+    }
+
+    public PoolSnapshot snapshot() {
+        PoolSnapshot snapshot = new PoolSnapshot(getTotalStats(), leaseWait.snapshot(), getLeaseTimeouts());
+        for (HttpRoute route : getRoutes()) {
+            snapshot.getRoutes().put(route.getTargetHost().toURI(), getStats(route));
+        }
+        return snapshot;
+    }
+
+    /**
+     * 可调整许可数的信号量，连接上限变化时随之增减
+     */
+    private static class LeaseGate extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        private int size;
+
+        LeaseGate(int size) {
+            super(size);
+            this.size = size;
+        }
+
+        /**
+         * 取得一个许可
+         *
+         * @param deadline System.nanoTime() 的截止时间，0 表示一直等待
+         * @throws InterruptedException
+         * @throws ConnectionPoolTimeoutException
+         */
+        void enter(long deadline) throws InterruptedException, ConnectionPoolTimeoutException {
+            if (deadline == 0) {
+                acquire();
+            } else if (!tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new ConnectionPoolTimeoutException("Timeout waiting for connection from pool");
+            }
+        }
+
+        synchronized void resize(int size) {
+            int delta = size - this.size;
+            this.size = size;
+            if (delta > 0) {
+                release(delta);
+            } else if (delta < 0) {
+                reducePermits(-delta);
+            }
+        }
+    }
+}
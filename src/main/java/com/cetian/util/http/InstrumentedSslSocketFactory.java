@@ -0,0 +1,51 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * @Description 记录 TLS 握手耗时的 https 连接工厂
+ *
+ *
+ *
+ * @author zangrong
+ * @Date 2026-10-19 15:40
+ */
+public class InstrumentedSslSocketFactory extends SSLConnectionSocketFactory {
+
+    public InstrumentedSslSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+        super(sslContext, hostnameVerifier);
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+            throws IOException {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return super.createLayeredSocket(socket, target, port, context);
+        }
+        long start = System.nanoTime();
+        try {
+            return super.createLayeredSocket(socket, target, port, context);
+        } finally {
+            timing.add(RequestTiming.Phase.TLS, System.nanoTime() - start);
+        }
+    }
+}
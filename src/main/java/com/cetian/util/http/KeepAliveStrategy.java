@@ -0,0 +1,75 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * @Description 连接保留时间：优先按响应头 Keep-Alive: timeout=N，没有时使用默认值，并且不超过上限
+ *
+ * HttpClient 默认在没有 Keep-Alive 头时永久保留连接，而服务端通常几秒到一分钟就会关闭空闲连接，
+ * 复用这样的连接会在发送时失败再重试。
+ * Keep-Alive: timeout=0 表示服务端不保留连接，返回 1 毫秒，连接放回池中即过期，不再复用
+ *
+ * @author zangrong
+ * @Date 2026-10-19 20:05
+ */
+public class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+    // 连接池把 0 当作永久保留，不复用时用最短的保留时间
+    private static final long NO_REUSE_MILLIS = 1;
+
+    private final long defaultMillis;
+    private final long maxMillis;
+
+    /**
+     * @param defaultMillis 响应没有声明 Keep-Alive 时连接的保留时间
+     * @param maxMillis     保留时间上限，服务端声明的时间更长时按上限
+     */
+    public KeepAliveStrategy(long defaultMillis, long maxMillis) {
+        if (defaultMillis <= 0 || maxMillis <= 0) {
+            throw new IllegalArgumentException("defaultMillis 和 maxMillis 必须大于 0");
+        }
+        this.defaultMillis = Math.min(defaultMillis, maxMillis);
+        this.maxMillis = maxMillis;
+    }
+
+    @Override
+    public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+        // 没有声明 timeout 时为 -1，timeout=0 时为 0
+        long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        if (duration < 0) {
+            return defaultMillis;
+        }
+        if (duration == 0) {
+            return NO_REUSE_MILLIS;
+        }
+        return Math.min(duration, maxMillis);
+    }
+
+    public long getDefaultMillis() {
+        return defaultMillis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "KeepAliveStrategy[default=" + defaultMillis + "ms, max=" + maxMillis + "ms]";
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.http.pool.PoolStats;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @Description 连接池某一时刻的状态：整体和每个目标地址的已借出、空闲、等待中的连接数及上限，以及获取连接的等待时间
+ *
+ *
+ *
+ * @author zangrong
+ * @Date 2026-10-18 21:15
+ */
+public class PoolSnapshot {
+
+    private final PoolStats total;
+    // key 为 scheme://host:port
+    private final Map<String, PoolStats> routes = new TreeMap<>();
+    private final LatencyHistogram.Snapshot leaseWait;
+    private final long leaseTimeouts;
+
+    public PoolSnapshot(PoolStats total, LatencyHistogram.Snapshot leaseWait, long leaseTimeouts) {
+        this.total = total;
+        this.leaseWait = leaseWait;
+        this.leaseTimeouts = leaseTimeouts;
+    }
+
+    public PoolStats getTotal() {
+        return total;
+    }
+
+    public Map<String, PoolStats> getRoutes() {
+        return routes;
+    }
+
+    public LatencyHistogram.Snapshot getLeaseWait() {
+        return leaseWait;
+    }
+
+    public long getLeaseTimeouts() {
+        return leaseTimeouts;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolSnapshot[total=" + total + ", routes=" + routes + ", leaseWait=[" + leaseWait
+                + "], leaseTimeouts=" + leaseTimeouts + "]";
+    }
+}
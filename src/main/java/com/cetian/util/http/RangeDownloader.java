@@ -0,0 +1,407 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import com.cetian.util.ObjectUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @Description 分段并行下载
+ *
+ * 先用 HEAD 获取文件长度、ETag 和是否支持 Range，然后把文件预先分配好大小，
+ * 各分段用 Range 请求并行下载，按位置直接写入文件。下载进度保存在同目录的 .download 文件中，
+ * 中断后再次下载同一地址时从断点继续，通过 If-Range 保证续传的是同一个版本。
+ * 服务端不支持 HEAD 或 Range 时退化为单连接下载
+ *
+ * @author zangrong
+ * @Date 2026-10-18 16:40
+ */
+@Slf4j
+public class RangeDownloader {
+
+    // 每个分段的最小长度，小文件不拆分
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    // 每写入多少字节保存一次进度
+    private static final long CHECKPOINT_SIZE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String STATE_SUFFIX = ".download";
+
+    private final CloseableHttpClient client;
+    private final RequestConfig requestConfig;
+
+    public RangeDownloader(CloseableHttpClient client, RequestConfig requestConfig) {
+        this.client = client;
+        this.requestConfig = requestConfig;
+    }
+
+    /**
+     * 下载到指定文件
+     *
+     * @param url
+     * @param target   目标文件，已存在会被覆盖（断点续传时除外）
+     * @param headers
+     * @param segments 最大并行分段数
+     * @throws IOException 下载失败，已下载的进度会保留，下次调用继续
+     */
+    public void download(String url, File target, Map<String, String> headers, int segments) throws IOException {
+        Probe probe = probe(url, headers);
+        if (probe == null) {
+            downloadWhole(url, target, headers);
+            return;
+        }
+        File stateFile = new File(target.getPath() + STATE_SUFFIX);
+        State state = State.load(stateFile);
+        if (state == null || !state.matches(url, probe) || !target.isFile() || target.length() != probe.length) {
+            int count = (int) Math.max(1, Math.min(segments, (probe.length + MIN_SEGMENT_SIZE - 1) / MIN_SEGMENT_SIZE));
+            state = State.create(url, probe, count);
+        } else {
+            log.info("断点续传 url[{}] 已下载[{}/{}]", url, state.downloaded(), probe.length);
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(target, "rw")) {
+            file.setLength(probe.length);
+            state.save(stateFile);
+            fetchSegments(url, headers, probe, state, stateFile, file.getChannel());
+            file.getChannel().force(false);
+        } catch (ResourceChangedException e) {
+            // 服务端文件已变化，进度作废，下次重新下载
+            Files.deleteIfExists(stateFile.toPath());
+            throw e;
+        }
+        if (target.length() != probe.length) {
+            throw new IOException("下载文件长度不一致 expected[" + probe.length + "] actual[" + target.length() + "]");
+        }
+        Files.deleteIfExists(stateFile.toPath());
+    }
+
+    private void fetchSegments(String url, Map<String, String> headers, Probe probe, State state, File stateFile,
+                               FileChannel channel) throws IOException {
+        List<Segment> remaining = new ArrayList<>();
+        for (Segment segment : state.segments) {
+            if (segment.remaining() > 0) {
+                remaining.add(segment);
+            }
+        }
+        if (remaining.isEmpty()) {
+            return;
+        }
+        if (remaining.size() == 1) {
+            fetchSegment(url, headers, probe, remaining.get(0), state, stateFile, channel);
+            return;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("http-download-");
+        threadFactory.setDaemon(true);
+        ExecutorService executor = Executors.newFixedThreadPool(remaining.size(), threadFactory);
+        try {
+            List<Future<?>> futures = new ArrayList<>(remaining.size());
+            for (Segment segment : remaining) {
+                futures.add(executor.submit(() -> {
+                    fetchSegment(url, headers, probe, segment, state, stateFile, channel);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("下载被中断", e);
+        } finally {
+            executor.shutdownNow();
+            state.save(stateFile);
+        }
+    }
+
+    private void fetchSegment(String url, Map<String, String> headers, Probe probe, Segment segment, State state,
+                              File stateFile, FileChannel channel) throws IOException {
+        long position = segment.start + segment.done;
+        HttpGet httpGet = new HttpGet(url);
+        prepare(httpGet, headers);
+        httpGet.setHeader(HttpHeaders.RANGE, "bytes=" + position + "-" + segment.end);
+        String validator = probe.etag != null ? probe.etag : probe.lastModified;
+        if (validator != null) {
+            httpGet.setHeader(HttpHeaders.IF_RANGE, validator);
+        }
+        try (CloseableHttpResponse response = client.execute(httpGet)) {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_OK) {
+                // If-Range 不匹配时服务端返回整个文件
+                throw new ResourceChangedException("服务端文件已变化 url[" + url + "]");
+            }
+            if (status != HttpStatus.SC_PARTIAL_CONTENT) {
+                throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+            }
+            String etag = headerValue(response.getFirstHeader(HttpHeaders.ETAG));
+            if (probe.etag != null && etag != null && !probe.etag.equals(etag)) {
+                throw new ResourceChangedException("ETag 不一致 expected[" + probe.etag + "] actual[" + etag + "]");
+            }
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                throw new IOException("分段响应没有内容 range[" + position + "-" + segment.end + "]");
+            }
+            try (InputStream in = entity.getContent()) {
+                byte[] bytes = new byte[BUFFER_SIZE];
+                long checkpoint = position;
+                int n;
+                while (position <= segment.end && (n = in.read(bytes)) != -1) {
+                    // 服务端多返回的数据丢弃
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, (int) Math.min(n, segment.end + 1 - position));
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    segment.done = position - segment.start;
+                    if (position - checkpoint >= CHECKPOINT_SIZE) {
+                        state.save(stateFile);
+                        checkpoint = position;
+                    }
+                }
+            }
+        }
+        if (segment.remaining() > 0) {
+            throw new IOException("分段下载不完整 range[" + segment.start + "-" + segment.end + "] done[" + segment.done + "]");
+        }
+    }
+
+    private void downloadWhole(String url, File target, Map<String, String> headers) throws IOException {
+        HttpGet httpGet = new HttpGet(url);
+        prepare(httpGet, headers);
+        try (CloseableHttpResponse response = client.execute(httpGet)) {
+            int status = response.getStatusLine().getStatusCode();
+            if (status >= 300) {
+                throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+            }
+            HttpEntity entity = response.getEntity();
+            try (InputStream is = entity == null ? InputStream.nullInputStream() : entity.getContent();
+                 FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                         StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                // 每次读入 64KB 再写入文件
+                byte[] bytes = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = is.read(bytes)) != -1) {
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, n);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * HEAD 请求获取文件信息，不支持分段下载时返回 null
+     */
+    private Probe probe(String url, Map<String, String> headers) throws IOException {
+        HttpHead httpHead = new HttpHead(url);
+        prepare(httpHead, headers);
+        try (CloseableHttpResponse response = client.execute(httpHead)) {
+            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+                return null;
+            }
+            String acceptRanges = headerValue(response.getFirstHeader(HttpHeaders.ACCEPT_RANGES));
+            String contentLength = headerValue(response.getFirstHeader(HttpHeaders.CONTENT_LENGTH));
+            if (!"bytes".equalsIgnoreCase(acceptRanges) || contentLength == null) {
+                return null;
+            }
+            long length = Long.parseLong(contentLength);
+            if (length <= 0) {
+                return null;
+            }
+            Probe probe = new Probe();
+            probe.length = length;
+            probe.etag = headerValue(response.getFirstHeader(HttpHeaders.ETAG));
+            probe.lastModified = headerValue(response.getFirstHeader(HttpHeaders.LAST_MODIFIED));
+            // 弱 ETag 不能用于 If-Range
+            if (probe.etag != null && probe.etag.startsWith("W/")) {
+                probe.etag = null;
+            }
+            return probe;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void prepare(HttpRequestBase request, Map<String, String> headers) {
+        request.setConfig(requestConfig);
+        // 分段按原始字节偏移读取，不能被压缩
+        request.setHeader(HttpHeaders.ACCEPT_ENCODING, "identity");
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                request.setHeader(header.getKey(), ObjectUtil.trimToEmpty(header.getValue()));
+            }
+        }
+    }
+
+    private static String headerValue(Header header) {
+        return header == null ? null : header.getValue();
+    }
+
+    private static class Probe {
+        long length;
+        String etag;
+        String lastModified;
+    }
+
+    private static class Segment {
+        final long start;
+        final long end;
+        volatile long done;
+
+        Segment(long start, long end, long done) {
+            this.start = start;
+            this.end = end;
+            this.done = done;
+        }
+
+        long remaining() {
+            return end - start + 1 - done;
+        }
+    }
+
+    /**
+     * 下载进度，以 properties 格式保存
+     */
+    private static class State {
+        final ReentrantLock lock = new ReentrantLock();
+        String url;
+        long length;
+        String etag;
+        String lastModified;
+        final List<Segment> segments = new ArrayList<>();
+
+        static State create(String url, Probe probe, int count) {
+            State state = new State();
+            state.url = url;
+            state.length = probe.length;
+            state.etag = probe.etag;
+            state.lastModified = probe.lastModified;
+            long size = probe.length / count;
+            for (int i = 0; i < count; i++) {
+                long start = i * size;
+                long end = i == count - 1 ? probe.length - 1 : start + size - 1;
+                state.segments.add(new Segment(start, end, 0));
+            }
+            return state;
+        }
+
+        static State load(File file) {
+            if (!file.isFile()) {
+                return null;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                properties.load(in);
+                State state = new State();
+                state.url = properties.getProperty("url");
+                state.length = Long.parseLong(properties.getProperty("length"));
+                state.etag = properties.getProperty("etag");
+                state.lastModified = properties.getProperty("lastModified");
+                int count = Integer.parseInt(properties.getProperty("segments"));
+                for (int i = 0; i < count; i++) {
+                    String[] parts = properties.getProperty("segment." + i).split(",");
+                    state.segments.add(new Segment(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                }
+                return state;
+            } catch (IOException | RuntimeException e) {
+                log.warn("下载进度文件无效，重新下载 file[{}]", file, e);
+                return null;
+            }
+        }
+
+        boolean matches(String url, Probe probe) {
+            return Objects.equals(this.url, url) && length == probe.length
+                    && Objects.equals(etag, probe.etag) && Objects.equals(lastModified, probe.lastModified);
+        }
+
+        long downloaded() {
+            long downloaded = 0;
+            for (Segment segment : segments) {
+                downloaded += segment.done;
+            }
+            return downloaded;
+        }
+
+        void save(File file) throws IOException {
+            lock.lock();
+            try {
+                Properties properties = new Properties();
+                properties.setProperty("url", url);
+                properties.setProperty("length", String.valueOf(length));
+                if (etag != null) {
+                    properties.setProperty("etag", etag);
+                }
+                if (lastModified != null) {
+                    properties.setProperty("lastModified", lastModified);
+                }
+                properties.setProperty("segments", String.valueOf(segments.size()));
+                for (int i = 0; i < segments.size(); i++) {
+                    Segment segment = segments.get(i);
+                    properties.setProperty("segment." + i, segment.start + "," + segment.end + "," + segment.done);
+                }
+                try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                    properties.store(out, null);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 下载过程中服务端文件发生变化
+     */
+    private static class ResourceChangedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        ResourceChangedException(String message) {
+            super(message);
+        }
+    }
+}
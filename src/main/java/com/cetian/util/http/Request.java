@@ -0,0 +1,167 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import com.cetian.util.ObjectUtil;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.message.BasicNameValuePair;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Description 一次 HTTP 请求的描述：方法、地址、参数、header 和 body
+ *
+ *
+ *
+ * @author zangrong
+ * @Date 2026-10-18 10:20
+ */
+public class Request {
+
+    public static final String APPLICATION_JSON = "application/json";
+
+    private final String method;
+    private final String url;
+    private final Map<String, Object> params = new LinkedHashMap<>();
+    private final Map<String, Object> headers = new LinkedHashMap<>();
+    private byte[] body;
+    private String contentType;
+    private long maxBodySize;
+
+    public Request(String method, String url) {
+        this.method = method;
+        this.url = url;
+    }
+
+    public static Request get(String url) {
+        return new Request("GET", url);
+    }
+
+    public static Request delete(String url) {
+        return new Request("DELETE", url);
+    }
+
+    public static Request post(String url) {
+        return new Request("POST", url);
+    }
+
+    public static Request postJson(String url, String json) {
+        return post(url).body(json, APPLICATION_JSON);
+    }
+
+    public Request param(String name, Object value) {
+        params.put(name, value);
+        return this;
+    }
+
+    public Request params(Map<String, Object> params) {
+        if (params != null) {
+            this.params.putAll(params);
+        }
+        return this;
+    }
+
+    public Request header(String name, Object value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    public Request headers(Map<String, ?> headers) {
+        if (headers != null) {
+            this.headers.putAll(headers);
+        }
+        return this;
+    }
+
+    public Request body(byte[] body, String contentType) {
+        this.body = body;
+        this.contentType = contentType;
+        return this;
+    }
+
+    public Request body(String body, String contentType) {
+        return body(body == null ? null : body.getBytes(StandardCharsets.UTF_8), contentType);
+    }
+
+    /**
+     * 本次请求允许的最大响应 body，不设置时使用客户端的全局上限
+     *
+     * @param maxBodySize 字节数
+     * @return
+     */
+    public Request maxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+        return this;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Map<String, Object> getParams() {
+        return params;
+    }
+
+    public Map<String, Object> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 本次请求允许的最大响应 body，0 表示使用全局上限
+     *
+     * @return
+     */
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * 拼接参数后的完整地址，参数按 UTF-8 编码
+     *
+     * @return
+     */
+    public URI toUri() {
+        if (params.isEmpty()) {
+            return URI.create(url);
+        }
+        List<NameValuePair> pairList = new ArrayList<>(params.size());
+        for (Map.Entry<String, Object> entry : params.entrySet()) {
+            pairList.add(new BasicNameValuePair(entry.getKey(), ObjectUtil.trimToEmpty(entry.getValue())));
+        }
+        String query = URLEncodedUtils.format(pairList, StandardCharsets.UTF_8);
+        return URI.create(url + (url.indexOf('?') < 0 ? "?" : "&") + query);
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + url;
+    }
+}
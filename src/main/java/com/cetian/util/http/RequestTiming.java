@@ -0,0 +1,137 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description 单个请求各阶段的耗时，纳秒
+ *
+ * 同步请求的取连接、建连、TLS 握手、发送和等待响应头都在调用线程上完成，
+ * 执行期间通过 {@link #current()} 关联到当前请求；读取 body 的耗时在 body 读完或关闭时记录。
+ * 重试时各阶段耗时累加
+ *
+ * @author zangrong
+ * @Date 2026-10-19 15:40
+ */
+public class RequestTiming {
+
+    public enum Phase {
+        /** 从连接池获取连接的等待 */
+        LEASE,
+        /** TCP 建连，不含 TLS */
+        CONNECT,
+        /** TLS 握手 */
+        TLS,
+        /** 写出请求头和 body */
+        SEND,
+        /** 发送完成到收到响应头，即服务端处理时间加网络往返 */
+        WAIT,
+        /** 读取响应 body */
+        BODY,
+        /** 从开始执行到 body 读完 */
+        TOTAL
+    }
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final String host;
+    private final String method;
+    private final long startNanos = System.nanoTime();
+    private final long[] nanos = new long[Phase.values().length];
+    private int status = -1;
+    private boolean failed;
+
+    RequestTiming(String host, String method) {
+        this.host = host;
+        this.method = method;
+    }
+
+    /**
+     * 当前线程正在执行的请求，未开启统计时返回 null
+     *
+     * @return
+     */
+    static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    void attach() {
+        CURRENT.set(this);
+    }
+
+    void detach() {
+        CURRENT.remove();
+    }
+
+    void add(Phase phase, long elapsedNanos) {
+        nanos[phase.ordinal()] += elapsedNanos;
+    }
+
+    void status(int status) {
+        this.status = status;
+    }
+
+    void failed() {
+        this.failed = true;
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * 响应状态码，没有收到响应时为 -1
+     *
+     * @return
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 是否以异常结束
+     *
+     * @return
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long getMillis(Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(getNanos(phase));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RequestTiming[").append(method).append(' ').append(host)
+                .append(' ').append(status);
+        for (Phase phase : Phase.values()) {
+            sb.append(", ").append(phase.name().toLowerCase()).append('=')
+                    .append(TimeUnit.NANOSECONDS.toMicros(getNanos(phase))).append("us");
+        }
+        return sb.append(']').toString();
+    }
+}
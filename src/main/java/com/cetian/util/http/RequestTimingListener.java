@@ -0,0 +1,27 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+/**
+ * @Description 请求结束（body 读完或关闭）时回调，在读取 body 的线程上执行，实现应尽量轻量
+ *
+ *
+ *
+ * @author zangrong
+ * @Date 2026-10-19 15:40
+ */
+@FunctionalInterface
+public interface RequestTimingListener {
+
+    void onRequest(RequestTiming timing);
+}
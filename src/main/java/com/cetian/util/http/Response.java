@@ -0,0 +1,125 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import com.cetian.util.JacksonUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.http.entity.ContentType;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @Description HTTP 响应：状态码、header 和完整的 body
+ *
+ *
+ *
+ * @author zangrong
+ * @Date 2026-10-18 10:20
+ */
+public class Response {
+
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+
+    public Response(int status, Map<String, List<String>> headers, byte[] body) {
+        this.status = status;
+        // header 名称不区分大小写
+        Map<String, List<String>> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null) {
+            map.putAll(headers);
+        }
+        this.headers = Collections.unmodifiableMap(map);
+        this.body = body == null ? new byte[0] : body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isSuccessful() {
+        return status >= 200 && status < 300;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * 获取 header 的第一个值，不存在返回 null
+     *
+     * @param name
+     * @return
+     */
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * 按 Content-Type 中的字符集解码 body，未声明时使用 UTF-8
+     *
+     * @return
+     */
+    public String getBodyAsString() {
+        return new String(body, charset());
+    }
+
+    /**
+     * 把 body 解析为 json 对象，UTF-8 的 body 直接按字节解析
+     *
+     * @param clazz
+     * @return
+     * @throws IllegalArgumentException body 不是合法的 json
+     */
+    public <T> T getBodyAsJson(Class<T> clazz) {
+        Charset charset = charset();
+        return StandardCharsets.UTF_8.equals(charset) ? JacksonUtil.fromJson(body, clazz)
+                : JacksonUtil.fromJson(new String(body, charset), clazz);
+    }
+
+    public <T> T getBodyAsJson(TypeReference<T> typeReference) {
+        Charset charset = charset();
+        return StandardCharsets.UTF_8.equals(charset) ? JacksonUtil.fromJson(body, typeReference)
+                : JacksonUtil.fromJson(new String(body, charset), typeReference);
+    }
+
+    private Charset charset() {
+        String contentType = getHeader("Content-Type");
+        if (contentType != null) {
+            try {
+                Charset charset = ContentType.parse(contentType).getCharset();
+                if (charset != null) {
+                    return charset;
+                }
+            } catch (RuntimeException e) {
+                // 非法的 Content-Type 按默认字符集处理
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    @Override
+    public String toString() {
+        return "Response[" + status + ", " + body.length + " bytes]";
+    }
+}
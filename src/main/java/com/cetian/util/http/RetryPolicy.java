@@ -0,0 +1,183 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description 重试策略：指数退避加随机抖动（full jitter），避免故障时所有客户端同时重试
+ *
+ * 幂等方法（GET、HEAD、PUT、DELETE、OPTIONS）在网络异常和 429/502/503/504 时重试；
+ * 非幂等方法（POST 等）默认只在连接未建立、请求肯定没有发出时重试。
+ * 服务端返回 Retry-After 时按其等待，但不超过最大间隔。
+ * 请求被取消（中断、abort）或当前线程已被中断时不重试
+ *
+ * @author zangrong
+ * @Date 2026-10-19 09:40
+ */
+public class RetryPolicy {
+
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "PUT", "DELETE", "OPTIONS", "TRACE");
+    private static final Set<Integer> RETRY_STATUS = Set.of(429, HttpStatus.SC_BAD_GATEWAY,
+            HttpStatus.SC_SERVICE_UNAVAILABLE, HttpStatus.SC_GATEWAY_TIMEOUT);
+
+    // 最多尝试次数，包含第一次
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    // 非幂等请求在请求可能已发出后是否也重试
+    private boolean retryNonIdempotent = false;
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * @param maxAttempts     最多尝试次数，包含第一次
+     * @param baseDelayMillis 第一次重试的最大等待时间，之后每次翻倍
+     * @param maxDelayMillis  单次等待时间上限
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public RetryPolicy setRetryNonIdempotent(boolean retryNonIdempotent) {
+        this.retryNonIdempotent = retryNonIdempotent;
+        return this;
+    }
+
+    /**
+     * 请求异常后是否重试
+     *
+     * @param request
+     * @param e
+     * @param attempt 已经尝试的次数
+     * @return
+     */
+    public boolean shouldRetry(HttpUriRequest request, IOException e, int attempt) {
+        if (e instanceof CircuitBreakerOpenException || e instanceof UnknownHostException || e instanceof SSLException) {
+            return false;
+        }
+        // InterruptedIOException 中只有超时可以重试，其余（RequestAbortedException 等）是调用方取消了请求
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)
+                && !(e instanceof ConnectTimeoutException)) {
+            return false;
+        }
+        // 连接没有建立，请求肯定没有发出
+        boolean notSent = e instanceof ConnectException || e instanceof ConnectTimeoutException
+                || e instanceof HttpConnectTimeoutException;
+        return check(request, attempt, notSent || isIdempotent(request));
+    }
+
+    /**
+     * 收到响应后是否重试
+     *
+     * @param request
+     * @param response
+     * @param attempt  已经尝试的次数
+     * @return
+     */
+    public boolean shouldRetry(HttpUriRequest request, HttpResponse response, int attempt) {
+        if (!RETRY_STATUS.contains(response.getStatusLine().getStatusCode())) {
+            return false;
+        }
+        return check(request, attempt, isIdempotent(request));
+    }
+
+    private boolean check(HttpUriRequest request, int attempt, boolean safe) {
+        if (!safe || !isRepeatable(request) || Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        if (attempt >= maxAttempts) {
+            exhausted.increment();
+            return false;
+        }
+        retries.increment();
+        return true;
+    }
+
+    /**
+     * 第 attempt 次尝试失败后的等待时间
+     *
+     * @param attempt  已经尝试的次数，从 1 开始
+     * @param response 失败的响应，可能为 null
+     * @return 毫秒
+     */
+    public long delayMillis(int attempt, HttpResponse response) {
+        if (response != null) {
+            Header retryAfter = response.getFirstHeader("Retry-After");
+            if (retryAfter != null) {
+                try {
+                    return Math.min(maxDelayMillis, Long.parseLong(retryAfter.getValue().trim()) * 1000);
+                } catch (NumberFormatException e) {
+                    // HTTP 日期格式的 Retry-After 按指数退避处理
+                }
+            }
+        }
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private boolean isIdempotent(HttpUriRequest request) {
+        return retryNonIdempotent || IDEMPOTENT_METHODS.contains(request.getMethod());
+    }
+
+    private boolean isRepeatable(HttpUriRequest request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+        return true;
+    }
+
+    /**
+     * 重试的次数
+     *
+     * @return
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * 达到最大尝试次数后放弃的次数
+     *
+     * @return
+     */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy[maxAttempts=" + maxAttempts + ", retries=" + getRetries() + ", exhausted=" + getExhausted() + "]";
+    }
+}
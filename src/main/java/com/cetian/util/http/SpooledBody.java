@@ -0,0 +1,131 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.commons.io.output.DeferredFileOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+/**
+ * @Description 响应 body，不超过内存阈值时保存在内存中，超过时写入临时文件，按需读取
+ *
+ * 使用完必须关闭，关闭时删除临时文件
+ *
+ * @author zangrong
+ * @Date 2026-10-19 17:00
+ */
+public class SpooledBody implements Closeable {
+
+    private final DeferredFileOutputStream out;
+
+    private SpooledBody(DeferredFileOutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * 读取整个输入流
+     *
+     * @param in
+     * @param memoryThreshold 超过多少字节写入临时文件
+     * @param maxSize         最大字节数，超过时抛出 {@link ResponseTooLargeException}
+     * @return
+     * @throws IOException
+     */
+    public static SpooledBody read(InputStream in, int memoryThreshold, long maxSize) throws IOException {
+        DeferredFileOutputStream out = new DeferredFileOutputStream(memoryThreshold, "http-body-", ".tmp", null);
+        try {
+            try (DeferredFileOutputStream os = out) {
+                BodyReader.limit(in, maxSize).transferTo(os);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteFile(out);
+            throw e;
+        }
+        return new SpooledBody(out);
+    }
+
+    /**
+     * 是否保存在内存中
+     *
+     * @return
+     */
+    public boolean isInMemory() {
+        return out.isInMemory();
+    }
+
+    public long length() {
+        return out.getByteCount();
+    }
+
+    /**
+     * 临时文件，保存在内存中时返回 null
+     *
+     * @return
+     */
+    public File getFile() {
+        return out.getFile();
+    }
+
+    /**
+     * 打开一个新的输入流，可以多次读取
+     *
+     * @return
+     * @throws IOException
+     */
+    public InputStream openStream() throws IOException {
+        if (out.isInMemory()) {
+            return new ByteArrayInputStream(out.getData());
+        }
+        return Files.newInputStream(out.getFile().toPath());
+    }
+
+    /**
+     * 读入内存，调用方应先确认长度
+     *
+     * @return
+     * @throws IOException
+     */
+    public byte[] toByteArray() throws IOException {
+        if (out.isInMemory()) {
+            return out.getData();
+        }
+        return Files.readAllBytes(out.getFile().toPath());
+    }
+
+    public String toString(Charset charset) throws IOException {
+        return new String(toByteArray(), charset);
+    }
+
+    @Override
+    public void close() {
+        deleteFile(out);
+    }
+
+    private static void deleteFile(DeferredFileOutputStream out) {
+        File file = out.getFile();
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpooledBody[" + length() + " bytes" + (isInMemory() ? "" : " " + getFile()) + "]";
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @Description 以流的方式处理响应 body，处理结束后连接自动归还连接池
+ *
+ *
+ *
+ * @author zangrong
+ * @Date 2026-10-18 14:05
+ */
+@FunctionalInterface
+public interface StreamHandler<T> {
+
+    /**
+     * @param body 响应 body，无 body 时为空流；不需要调用方关闭
+     * @return
+     * @throws IOException
+     */
+    T handle(InputStream body) throws IOException;
+}
@@ -0,0 +1,75 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import org.apache.http.HttpStatus;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Description 按目标地址限流的策略，每个 scheme://host:port 一个令牌桶和一个自适应并发限制
+ *
+ * 拿不到令牌或名额时最多等待 maxWaitMillis，为 0 则直接失败，抛出 {@link ThrottledException}
+ *
+ * @author zangrong
+ * @Date 2026-10-19 10:30
+ */
+public class ThrottlePolicy {
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final int maxConcurrency;
+    private final long maxWaitMillis;
+    private final ConcurrentMap<String, HostThrottle> throttles = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerSecond 每个地址每秒请求数，小于等于 0 表示不限速
+     * @param burst            允许的突发请求数
+     * @param maxConcurrency   每个地址的最大并发数，小于等于 0 表示不限并发
+     * @param maxWaitMillis    最多等待时间
+     */
+    public ThrottlePolicy(double permitsPerSecond, int burst, int maxConcurrency, long maxWaitMillis) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxConcurrency = maxConcurrency;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public HostThrottle forHost(String host) {
+        return throttles.computeIfAbsent(host, key -> new HostThrottle(key,
+                permitsPerSecond > 0 ? new TokenBucket(permitsPerSecond, burst) : null,
+                maxConcurrency > 0 ? new AimdLimiter(maxConcurrency) : null, maxWaitMillis));
+    }
+
+    /**
+     * 响应是否表示被对方限流
+     *
+     * @param status
+     * @return
+     */
+    public boolean isDropped(int status) {
+        return status == 429 || status == HttpStatus.SC_SERVICE_UNAVAILABLE;
+    }
+
+    public Collection<HostThrottle> getThrottles() {
+        return Collections.unmodifiableCollection(throttles.values());
+    }
+
+    @Override
+    public String toString() {
+        return "ThrottlePolicy" + throttles.values();
+    }
+}
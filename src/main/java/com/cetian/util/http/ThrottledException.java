@@ -0,0 +1,32 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import java.io.IOException;
+
+/**
+ * @Description 客户端限流，在等待时间内没有拿到令牌或并发名额，请求没有发出
+ *
+ *
+ *
+ * @author zangrong
+ * @Date 2026-10-19 10:30
+ */
+public class ThrottledException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ThrottledException(String host, String reason) {
+        super("客户端限流，拒绝请求 host[" + host + "] " + reason);
+    }
+}
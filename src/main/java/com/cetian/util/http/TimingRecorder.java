@@ -0,0 +1,209 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @Description 按目标地址汇总请求各阶段耗时的直方图，并通知监听器
+ *
+ * 默认关闭，关闭时 {@link #start(String, String)} 返回 null，请求路径上只多一次判断
+ *
+ * @author zangrong
+ * @Date 2026-10-19 15:40
+ */
+@Slf4j
+public class TimingRecorder {
+
+    private volatile boolean enabled;
+    private final List<RequestTimingListener> listeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, LatencyHistogram[]> hosts = new ConcurrentHashMap<>();
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addListener(RequestTimingListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(RequestTimingListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 开始记录一个请求，并关联到当前线程，之后必须在同一线程调用 track 或 fail
+     *
+     * @param host
+     * @param method
+     * @return 未开启时返回 null
+     */
+    public RequestTiming start(String host, String method) {
+        if (!enabled) {
+            return null;
+        }
+        RequestTiming timing = new RequestTiming(host, method);
+        timing.attach();
+        return timing;
+    }
+
+    /**
+     * 收到最终响应后调用，解除与当前线程的关联，body 读完或关闭时结束记录
+     *
+     * @param timing
+     * @param response
+     * @return
+     */
+    public CloseableHttpResponse track(RequestTiming timing, CloseableHttpResponse response) {
+        timing.detach();
+        timing.status(response.getStatusLine().getStatusCode());
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            finish(timing);
+        } else {
+            response.setEntity(new TimedEntity(entity, timing));
+        }
+        return response;
+    }
+
+    /**
+     * 请求以异常结束时调用
+     *
+     * @param timing
+     */
+    public void fail(RequestTiming timing) {
+        timing.detach();
+        timing.failed();
+        finish(timing);
+    }
+
+    private void finish(RequestTiming timing) {
+        timing.add(RequestTiming.Phase.TOTAL, timing.elapsedNanos());
+        LatencyHistogram[] histograms = hosts.computeIfAbsent(timing.getHost(), key -> newHistograms());
+        for (RequestTiming.Phase phase : RequestTiming.Phase.values()) {
+            histograms[phase.ordinal()].recordNanos(timing.getNanos(phase));
+        }
+        for (RequestTimingListener listener : listeners) {
+            try {
+                listener.onRequest(timing);
+            } catch (RuntimeException e) {
+                log.warn("耗时监听器异常", e);
+            }
+        }
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[RequestTiming.Phase.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    /**
+     * 各地址各阶段耗时分布的快照
+     *
+     * @return scheme://host:port -> 阶段 -> 分布
+     */
+    public Map<String, Map<RequestTiming.Phase, LatencyHistogram.Snapshot>> snapshot() {
+        Map<String, Map<RequestTiming.Phase, LatencyHistogram.Snapshot>> snapshot = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram[]> entry : hosts.entrySet()) {
+            Map<RequestTiming.Phase, LatencyHistogram.Snapshot> phases = new EnumMap<>(RequestTiming.Phase.class);
+            for (RequestTiming.Phase phase : RequestTiming.Phase.values()) {
+                phases.put(phase, entry.getValue()[phase.ordinal()].snapshot());
+            }
+            snapshot.put(entry.getKey(), Collections.unmodifiableMap(phases));
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * 清空已汇总的数据
+     */
+    public void reset() {
+        hosts.clear();
+    }
+
+    /**
+     * 读到 body 末尾或关闭时结束记录
+     */
+    private class TimedEntity extends HttpEntityWrapper {
+
+        private final RequestTiming timing;
+        private final long createdNanos = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        TimedEntity(HttpEntity entity, RequestTiming timing) {
+            super(entity);
+            this.timing = timing;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new ProxyInputStream(wrappedEntity.getContent()) {
+                @Override
+                protected void afterRead(int n) {
+                    if (n < 0) {
+                        done();
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        done();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            try {
+                wrappedEntity.writeTo(out);
+            } finally {
+                done();
+            }
+        }
+
+        private void done() {
+            if (finished.compareAndSet(false, true)) {
+                timing.add(RequestTiming.Phase.BODY, System.nanoTime() - createdNanos);
+                finish(timing);
+            }
+        }
+    }
+}
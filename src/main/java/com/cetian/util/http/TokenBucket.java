@@ -0,0 +1,104 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description 令牌桶限速，按固定速率补充令牌，最多积攒 burst 个
+ *
+ * 令牌不足时预约下一个令牌并在锁外等待，等待时间超过上限则直接返回失败，不占用令牌
+ *
+ * @author zangrong
+ * @Date 2026-10-19 10:30
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param burst            最多积攒的令牌数，即允许的突发请求数
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond 和 burst 必须大于 0");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * 获取一个令牌，最多等待 timeout
+     *
+     * @param timeout
+     * @param unit
+     * @return 是否获取成功
+     * @throws InterruptedException
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long waitNanos = reserve(unit.toNanos(timeout));
+        if (waitNanos < 0) {
+            return false;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+
+    /**
+     * 预约一个令牌
+     *
+     * @param maxWaitNanos
+     * @return 需要等待的纳秒数，-1 表示等待时间超过上限，没有预约
+     */
+    private synchronized long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long waitNanos = (long) Math.ceil((1 - tokens) / permitsPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        // 令牌数可以为负，表示已经被预约
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    /**
+     * 归还一个已获取但没有使用的令牌
+     */
+    public synchronized void refund() {
+        tokens = Math.min(burst, tokens + 1);
+    }
+
+    /**
+     * 当前可用的令牌数，负数表示已有请求在等待
+     *
+     * @return
+     */
+    public synchronized double getAvailable() {
+        long now = System.nanoTime();
+        return Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+    }
+}
@@ -0,0 +1,829 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util;
+
+import com.cetian.util.http.BatchResult;
+import com.cetian.util.http.BodyReader;
+import com.cetian.util.http.CallScope;
+import com.cetian.util.http.CircuitBreaker;
+import com.cetian.util.http.CircuitBreakerPolicy;
+import com.cetian.util.http.CompressionPolicy;
+import com.cetian.util.http.HedgePolicy;
+import com.cetian.util.http.HostThrottle;
+import com.cetian.util.http.Http2Transport;
+import com.cetian.util.http.HttpCache;
+import com.cetian.util.http.KeepAliveStrategy;
+import com.cetian.util.http.LatencyHistogram;
+import com.cetian.util.http.PoolSnapshot;
+import com.cetian.util.http.Request;
+import com.cetian.util.http.RequestTiming;
+import com.cetian.util.http.RequestTimingListener;
+import com.cetian.util.http.ResponseTooLargeException;
+import com.cetian.util.http.Response;
+import com.cetian.util.http.RetryPolicy;
+import com.cetian.util.http.SpooledBody;
+import com.cetian.util.http.ThrottlePolicy;
+import com.cetian.util.http.VirtualThreads;
+import com.cetian.util.http.TimingRecorder;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.pool.PoolStats;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class HttpUtilTest {
+
+    private static HttpServer server;
+    private static String baseUrl;
+    private static final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private static final byte[] FILE = new byte[5 * 1024 * 1024 + 123];
+    private static final AtomicInteger failures = new AtomicInteger();
+    private static final AtomicLong servedBytes = new AtomicLong();
+    private static final AtomicInteger configRequests = new AtomicInteger();
+    private static final AtomicInteger conditionalRequests = new AtomicInteger();
+    private static final AtomicInteger slowRequests = new AtomicInteger();
+    private static final AtomicInteger hedgeRequests = new AtomicInteger();
+    private static final AtomicInteger gatedInFlight = new AtomicInteger();
+    private static final AtomicInteger gatedMaxInFlight = new AtomicInteger();
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        new Random(42).nextBytes(FILE);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] request;
+            try (InputStream is = exchange.getRequestBody()) {
+                request = is.readAllBytes();
+            }
+            String query = exchange.getRequestURI().getRawQuery();
+            byte[] body = request.length > 0 ? request : String.valueOf(query).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/bytes", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            // 带 &chunked 时不返回 Content-Length
+            boolean chunked = query.endsWith("&chunked");
+            int size = Integer.parseInt(query.substring("size=".length(), query.length() - (chunked ? 8 : 0)));
+            exchange.sendResponseHeaders(200, chunked ? 0 : size);
+            try (OutputStream os = exchange.getResponseBody()) {
+                byte[] block = new byte[4096];
+                for (int written = 0; written < size; written += block.length) {
+                    os.write(block, 0, Math.min(block.length, size - written));
+                }
+            }
+        });
+        server.createContext("/file", exchange -> {
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(FILE.length));
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+            int start = 0;
+            int end = FILE.length - 1;
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null) {
+                String[] parts = range.substring("bytes=".length()).split("-");
+                start = Integer.parseInt(parts[0]);
+                end = Integer.parseInt(parts[1]);
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + FILE.length);
+            }
+            int length = end - start + 1;
+            exchange.sendResponseHeaders(range == null ? 200 : 206, length);
+            OutputStream os = exchange.getResponseBody();
+            if (failures.getAndDecrement() > 0) {
+                // 只写一半就断开，模拟下载中断
+                os.write(FILE, start, length / 2);
+                os.flush();
+                servedBytes.addAndGet(length / 2);
+                throw new IOException("simulated failure");
+            }
+            os.write(FILE, start, length);
+            servedBytes.addAndGet(length);
+            os.close();
+        });
+        server.createContext("/config", exchange -> {
+            configRequests.incrementAndGet();
+            // max-age=0 的响应在到达时就已过期，使用前要重新验证
+            boolean stale = exchange.getRequestURI().getQuery() != null;
+            exchange.getResponseHeaders().set("Cache-Control", stale ? "max-age=0" : "max-age=60");
+            exchange.getResponseHeaders().set("ETag", "\"c1\"");
+            if ("\"c1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                conditionalRequests.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = "config".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            slowRequests.incrementAndGet();
+            String query = exchange.getRequestURI().getRawQuery();
+            ThreadUtil.sleep(query != null && query.startsWith("ms=") ? Long.parseLong(query.substring(3)) : 300L);
+            byte[] body = "slow".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/gated", exchange -> {
+            gatedMaxInFlight.accumulateAndGet(gatedInFlight.incrementAndGet(), Math::max);
+            ThreadUtil.sleep(50L);
+            gatedInFlight.decrementAndGet();
+            byte[] body = "gated".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/flaky", exchange -> {
+            int status = failures.getAndDecrement() > 0 ? 503 : 200;
+            byte[] body = String.valueOf(status).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/gzip", exchange -> {
+            // 解压 gzip 请求，按 Accept-Encoding 压缩返回
+            InputStream is = exchange.getRequestBody();
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                is = new GZIPInputStream(is);
+            }
+            byte[] body = is.readAllBytes();
+            String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (accept != null && accept.contains("gzip")) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(body);
+                }
+                body = out.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/bomb", exchange -> {
+            // 很小的 gzip 响应，解压后为 size 个 0
+            int size = Integer.parseInt(exchange.getRequestURI().getQuery().substring("size=".length()));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(new byte[size]);
+            }
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, out.size());
+            try (OutputStream os = exchange.getResponseBody()) {
+                out.writeTo(os);
+            }
+        });
+        server.createContext("/hedge", exchange -> {
+            // 第一个请求很慢，模拟慢副本
+            if (hedgeRequests.getAndIncrement() == 0) {
+                ThreadUtil.sleep(2000L);
+            }
+            byte[] body = "fast".getBytes(StandardCharsets.UTF_8);
+            try {
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            } catch (IOException e) {
+                // 被取消的请求连接已关闭
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        HttpUtil.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void sharedClientReusesConnection() {
+        clientPorts.clear();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("{\"i\":" + i + "}", HttpUtil.doPostJson(baseUrl + "/echo", "{\"i\":" + i + "}"));
+            assertEquals("id=" + i, HttpUtil.doGet(baseUrl + "/echo?id=" + i));
+        }
+        log.info("client ports:{}", clientPorts);
+        assertEquals(1, clientPorts.size(), "connection should be kept alive and reused");
+
+        HttpUtil.shutdown();
+        assertEquals("id=1", HttpUtil.doGet(baseUrl + "/echo?id=1"), "client should be recreated after shutdown");
+    }
+
+    @Test
+    void legacyPathsUsePool() throws Exception {
+        String xml = "<xml>\n  <id>1</id>\n</xml>";
+        assertEquals(xml, HttpUtil.doHttp(baseUrl + "/echo", "POST", xml), "newlines should be kept");
+        assertEquals(1, HttpUtil.httpsRequestJson(baseUrl + "/echo", "POST", "{\"a\":1}").getInt("a"));
+        assertThrows(HttpResponseException.class, () -> HttpUtil.doHttp(baseUrl + "/missing", "POST", xml));
+        assertNull(HttpUtil.httpsRequestJson(baseUrl + "/missing", "GET", null));
+    }
+
+    @Test
+    void asyncGet() {
+        List<CompletableFuture<Response>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(HttpUtil.async().get(baseUrl + "/echo", Map.of("id", i), null));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            Response response = futures.get(i).join();
+            assertEquals(200, response.getStatus());
+            assertEquals("id=" + i, response.getBodyAsString());
+        }
+        assertEquals("{}", HttpUtil.async().postJson(baseUrl + "/echo", "{}").join().getBodyAsString());
+        assertEquals(0, HttpUtil.async().getInFlight());
+    }
+
+    @Test
+    void streamLargeBody() throws IOException {
+        int size = 3 * 1024 * 1024 + 17;
+        AtomicLong received = new AtomicLong();
+        HttpUtil.doGetChunks(baseUrl + "/bytes", Map.of("size", size), null,
+                chunk -> received.addAndGet(chunk.remaining()));
+        assertEquals(size, received.get());
+
+        try (InputStream in = HttpUtil.openStream(baseUrl + "/bytes", Map.of("size", 100), null)) {
+            assertEquals(100, in.readAllBytes().length);
+        }
+        Long length = HttpUtil.doGetStream(baseUrl + "/bytes", Map.of("size", 10), null, in -> (long) in.readAllBytes().length);
+        assertEquals(10L, length);
+        assertThrows(HttpResponseException.class,
+                () -> HttpUtil.doGetStream(baseUrl + "/missing", null, null, InputStream::readAllBytes));
+    }
+
+    @Test
+    void typedJson() throws IOException {
+        Map<String, Object> body = Map.of("name", "测试", "values", List.of(1, 2, 3));
+        Map<String, Object> echoed = HttpUtil.postJson(baseUrl + "/echo", body, new TypeReference<Map<String, Object>>() {
+        });
+        assertEquals(body, echoed);
+        assertEquals(5, HttpUtil.getJson(baseUrl + "/echo?5", Integer.class));
+        assertNull(HttpUtil.getJson(baseUrl + "/bytes?size=0", Integer.class), "empty body should decode to null");
+    }
+
+    @Test
+    void rangedDownloadResumes(@TempDir Path dir) throws IOException {
+        Path target = dir.resolve("file.bin");
+        failures.set(1);
+        servedBytes.set(0);
+        assertFalse(HttpUtil.download(baseUrl + "/file", target.toString(), null, 4), "one segment should fail");
+        assertTrue(Files.exists(dir.resolve("file.bin.download")), "progress should be kept for resume");
+
+        assertTrue(HttpUtil.download(baseUrl + "/file", target.toString(), null, 4));
+        assertArrayEquals(FILE, Files.readAllBytes(target));
+        assertFalse(Files.exists(dir.resolve("file.bin.download")));
+        log.info("served bytes:{} file bytes:{}", servedBytes.get(), FILE.length);
+        assertTrue(servedBytes.get() < FILE.length * 2L, "completed segments should not be downloaded again");
+    }
+
+    @Test
+    void uploadFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("upload.txt");
+        Files.writeString(file, "文件内容");
+        assertEquals("文件内容", HttpUtil.doPostFile(baseUrl + "/echo", file.toFile(), null, null));
+    }
+
+    @Test
+    void responseCache() {
+        HttpUtil.enableCache(100, 64 * 1024);
+        try {
+            configRequests.set(0);
+            for (int i = 0; i < 5; i++) {
+                assertEquals("config", HttpUtil.doGet(baseUrl + "/config"));
+            }
+            assertEquals(1, configRequests.get(), "fresh response should be served from cache");
+
+            // 过期后向服务端验证，304 后使用缓存内容
+            for (int i = 0; i < 3; i++) {
+                assertEquals("config", HttpUtil.doGet(baseUrl + "/config?stale"));
+            }
+            HttpCache cache = HttpUtil.getHttpCache();
+            log.info("{}", cache);
+            assertTrue(conditionalRequests.get() > 0, "stale response should be revalidated");
+            assertTrue(cache.getValidated() > 0, "304 should be served from cache");
+            assertEquals(8, cache.getHits() + cache.getValidated() + cache.getMisses());
+        } finally {
+            HttpUtil.disableCache();
+        }
+    }
+
+    @Test
+    void singleFlight() throws Exception {
+        HttpUtil.setSingleFlightEnabled(true);
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            slowRequests.set(0);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return HttpUtil.doGet(baseUrl + "/slow", Map.of("a", 1, "b", 2), null);
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("slow", result.get());
+            }
+            log.info("{} server requests:{}", HttpUtil.getSingleFlight(), slowRequests.get());
+            assertTrue(slowRequests.get() < 10, "identical concurrent requests should be coalesced");
+            assertEquals(10, HttpUtil.getSingleFlight().getExecutions() + HttpUtil.getSingleFlight().getShared());
+
+            // body 长度上限不同的调用不共享结果
+            Future<String> full = executor.submit(() -> HttpUtil.doGet(baseUrl + "/slow", Map.of("a", 1, "b", 2), null));
+            Future<String> limited = executor.submit(() -> HttpUtil.doGet(baseUrl + "/slow", Map.of("a", 1, "b", 2), null, 2));
+            assertEquals("slow", full.get());
+            assertNull(limited.get());
+        } finally {
+            executor.shutdownNow();
+            HttpUtil.setSingleFlightEnabled(false);
+        }
+    }
+
+    @Test
+    void perRouteLimitAndPoolStats() throws Exception {
+        HttpUtil.setMaxPerRoute(baseUrl, 2);
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                int id = i;
+                results.add(executor.submit(() -> HttpUtil.doGet(baseUrl + "/slow", Map.of("id", id), null)));
+            }
+            for (Future<String> result : results) {
+                assertEquals("slow", result.get());
+            }
+            PoolSnapshot snapshot = HttpUtil.getPoolStats();
+            log.info("{}", snapshot);
+            PoolStats route = snapshot.getRoutes().get(baseUrl);
+            assertEquals(2, route.getMax());
+            assertEquals(0, route.getLeased());
+            assertTrue(route.getAvailable() <= 2);
+            assertTrue(snapshot.getLeaseWait().getMax() >= 200_000, "requests beyond the route limit should wait");
+        } finally {
+            executor.shutdownNow();
+            HttpUtil.setMaxPerRoute(baseUrl, 200);
+        }
+    }
+
+    @Test
+    void retryStopsWhenScopeCancelled() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(50, 100, 100);
+        HttpGet get = new HttpGet(baseUrl + "/echo");
+        assertTrue(retryPolicy.shouldRetry(get, new SocketTimeoutException(), 1));
+        assertFalse(retryPolicy.shouldRetry(get, new RequestAbortedException("aborted"), 1));
+        assertFalse(retryPolicy.shouldRetry(get, new InterruptedIOException(), 1));
+
+        HttpUtil.setRetryPolicy(retryPolicy);
+        try {
+            failures.set(1000);
+            Future<String> call;
+            try (CallScope scope = HttpUtil.openScope(300)) {
+                call = scope.fork(() -> HttpUtil.doGet(baseUrl + "/flaky"));
+                assertThrows(TimeoutException.class, scope::join);
+            }
+            assertTrue(call.isCancelled());
+            ThreadUtil.sleep(100L);
+            long retries = retryPolicy.getRetries();
+            int remaining = failures.get();
+            ThreadUtil.sleep(400L);
+            assertEquals(retries, retryPolicy.getRetries(), "cancelled call should stop retrying");
+            assertEquals(remaining, failures.get(), "no request should be sent after cancel");
+        } finally {
+            failures.set(0);
+            HttpUtil.setRetryPolicy(null);
+        }
+    }
+
+    @Test
+    void retryAndCircuitBreaker() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 10, 50);
+        HttpUtil.setRetryPolicy(retryPolicy);
+        try {
+            failures.set(2);
+            assertEquals("200", HttpUtil.doGet(baseUrl + "/flaky"));
+            assertEquals(2, retryPolicy.getRetries());
+            failures.set(2);
+            assertEquals("503", HttpUtil.doPost(baseUrl + "/flaky"), "POST is not idempotent and should not be retried");
+        } finally {
+            HttpUtil.setRetryPolicy(null);
+        }
+
+        CircuitBreakerPolicy breakerPolicy = new CircuitBreakerPolicy(2, 200);
+        HttpUtil.setCircuitBreakerPolicy(breakerPolicy);
+        try {
+            failures.set(100);
+            assertEquals("503", HttpUtil.doGet(baseUrl + "/flaky"));
+            assertEquals("503", HttpUtil.doGet(baseUrl + "/flaky"));
+            assertNull(HttpUtil.doGet(baseUrl + "/flaky"), "open circuit should reject the request");
+            CircuitBreaker breaker = breakerPolicy.getBreakers().iterator().next();
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            assertEquals(1, breaker.getRejected());
+
+            failures.set(0);
+            ThreadUtil.sleep(250L);
+            assertEquals("200", HttpUtil.doGet(baseUrl + "/flaky"), "half-open probe should pass");
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            log.info("{}", breakerPolicy);
+        } finally {
+            HttpUtil.setCircuitBreakerPolicy(null);
+        }
+    }
+
+    @Test
+    void throttle() throws IOException {
+        ThrottlePolicy policy = new ThrottlePolicy(5, 2, 4, 0);
+        HttpUtil.setThrottlePolicy(policy);
+        try {
+            assertNotNull(HttpUtil.doGet(baseUrl + "/echo"));
+            assertNotNull(HttpUtil.doGet(baseUrl + "/echo"));
+            assertNull(HttpUtil.doGet(baseUrl + "/echo"), "burst exhausted, should fail fast");
+            HostThrottle throttle = policy.getThrottles().iterator().next();
+            assertEquals(1, throttle.getRejected());
+
+            ThreadUtil.sleep(250L);
+            failures.set(1);
+            assertEquals("503", HttpUtil.doGet(baseUrl + "/flaky"));
+            assertEquals(2, throttle.getConcurrencyLimit(), "503 should halve the concurrency limit");
+            assertEquals(0, throttle.getInFlight());
+
+            // 读取 body 期间仍占着并发名额，关闭响应后归还
+            ThreadUtil.sleep(250L);
+            try (InputStream in = HttpUtil.openStream(baseUrl + "/echo", Map.of("id", 1), null)) {
+                assertEquals(1, throttle.getInFlight());
+                in.read();
+                assertEquals(1, throttle.getInFlight());
+            }
+            assertEquals(0, throttle.getInFlight());
+            log.info("{}", policy);
+        } finally {
+            HttpUtil.setThrottlePolicy(null);
+        }
+    }
+
+    @Test
+    void throttledProbeReleasesHalfOpenBreaker() {
+        CircuitBreakerPolicy breakerPolicy = new CircuitBreakerPolicy(1, 100);
+        HttpUtil.setCircuitBreakerPolicy(breakerPolicy);
+        HttpUtil.setThrottlePolicy(new ThrottlePolicy(2, 1, 0, 0));
+        try {
+            failures.set(100);
+            assertEquals("503", HttpUtil.doGet(baseUrl + "/flaky"));
+            CircuitBreaker breaker = breakerPolicy.getBreakers().iterator().next();
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+            // 熔断已到期，探测请求被限流拒绝
+            ThreadUtil.sleep(150L);
+            assertNull(HttpUtil.doGet(baseUrl + "/flaky"));
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState(), "throttled probe should not stay half-open");
+
+            failures.set(0);
+            ThreadUtil.sleep(500L);
+            assertEquals("200", HttpUtil.doGet(baseUrl + "/flaky"), "next probe should pass");
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        } finally {
+            HttpUtil.setThrottlePolicy(null);
+            HttpUtil.setCircuitBreakerPolicy(null);
+        }
+    }
+
+    @Test
+    void batch() throws InterruptedException {
+        List<Request> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(Request.postJson(baseUrl + "/echo", "{\"i\":" + i + "}"));
+        }
+        requests.add(Request.get(baseUrl + "/slow").param("ms", 5000));
+        List<Integer> order = new ArrayList<>();
+        BatchResult[] results = new BatchResult[requests.size()];
+        HttpUtil.batch(requests, 4, 2000, result -> {
+            order.add(result.getIndex());
+            results[result.getIndex()] = result;
+        });
+        assertEquals(requests.size(), order.size());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(results[i].isSuccessful(), String.valueOf(results[i]));
+            assertEquals("{\"i\":" + i + "}", results[i].getResponse().getBodyAsString());
+        }
+        assertTrue(results[20].getError() instanceof TimeoutException, "slow request should miss the deadline");
+        assertEquals(20, order.get(order.size() - 1));
+
+        List<BatchResult> collected = HttpUtil.batch(requests.subList(0, 5), 2, 5000);
+        assertEquals(5, collected.size());
+        assertEquals("{\"i\":3}", collected.get(3).getResponse().getBodyAsString());
+    }
+
+    @Test
+    void compression() throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) {
+            sb.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"item\"}");
+        }
+        String json = sb.append("]").toString();
+        CompressionPolicy policy = new CompressionPolicy(CompressionPolicy.GZIP, 1024);
+        HttpUtil.setCompressionPolicy(policy);
+        try {
+            assertEquals(json, HttpUtil.doPostJson(baseUrl + "/gzip", json));
+            assertEquals("small", HttpUtil.doPostJson(baseUrl + "/gzip", "small"));
+            assertEquals(json, HttpUtil.async().postJson(baseUrl + "/gzip", json).join().getBodyAsString());
+            log.info("{}", policy);
+            assertEquals(2, policy.getCompressedRequests(), "only bodies above the threshold are compressed");
+            assertEquals(3, policy.getCompressedResponses());
+            assertEquals(2L * json.length(), policy.getRequestBytes());
+            assertTrue(policy.getRequestWireBytes() * 4 < policy.getRequestBytes());
+            assertTrue(policy.getResponseWireBytes() * 4 < policy.getResponseBytes());
+        } finally {
+            HttpUtil.setCompressionPolicy(new CompressionPolicy());
+        }
+
+        // 压缩后的请求 body 也可以直接读取
+        HttpPost post = new HttpPost(baseUrl + "/gzip");
+        post.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        policy.process(post, null);
+        try (InputStream in = post.getEntity().getContent()) {
+            assertEquals(json, new String(policy.decode(CompressionPolicy.GZIP, in.readAllBytes()), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void http2FallsBackToHttp11() throws IOException {
+        HttpUtil.setHttp2Enabled(true);
+        try {
+            assertEquals("id=1", HttpUtil.doGet(baseUrl + "/echo?id=1"));
+            assertEquals("{\"a\":1}", HttpUtil.doPostJson(baseUrl + "/echo", "{\"a\":1}"));
+            int size = 1024 * 1024 + 3;
+            AtomicLong received = new AtomicLong();
+            HttpUtil.doGetChunks(baseUrl + "/bytes", Map.of("size", size), null,
+                    chunk -> received.addAndGet(chunk.remaining()));
+            assertEquals(size, received.get());
+            assertEquals("id=2", HttpUtil.async().get(baseUrl + "/echo?id=2").join().getBodyAsString());
+
+            Http2Transport transport = HttpUtil.getHttp2Transport();
+            log.info("{}", transport);
+            assertEquals(3, transport.getHttp11Responses(), "test server only speaks HTTP/1.1");
+            assertEquals(0, transport.getHttp2Responses());
+
+            // 关闭再开启时旧的传输被关闭，重新创建
+            HttpUtil.setHttp2Enabled(false);
+            HttpUtil.setHttp2Enabled(true);
+            assertNotSame(transport, HttpUtil.getHttp2Transport());
+            assertEquals("id=3", HttpUtil.doGet(baseUrl + "/echo?id=3"));
+        } finally {
+            HttpUtil.setHttp2Enabled(false);
+        }
+        assertNull(HttpUtil.getHttp2Transport());
+    }
+
+    @Test
+    void requestTiming() {
+        List<RequestTiming> timings = new CopyOnWriteArrayList<>();
+        TimingRecorder recorder = HttpUtil.getTimingRecorder();
+        RequestTimingListener listener = timings::add;
+        recorder.addListener(listener);
+        HttpUtil.setTimingEnabled(true);
+        try {
+            HttpUtil.shutdown();
+            assertEquals("slow", HttpUtil.doGet(baseUrl + "/slow?ms=200"));
+            assertEquals("id=1", HttpUtil.doGet(baseUrl + "/echo?id=1"));
+            assertEquals(2, timings.size());
+            RequestTiming first = timings.get(0);
+            log.info("{}", first);
+            assertEquals(200, first.getStatus());
+            assertTrue(first.getNanos(RequestTiming.Phase.CONNECT) > 0, "first request opens a connection");
+            assertTrue(first.getMillis(RequestTiming.Phase.WAIT) >= 180);
+            assertTrue(first.getNanos(RequestTiming.Phase.TOTAL) >= first.getNanos(RequestTiming.Phase.WAIT));
+            assertEquals(0, timings.get(1).getNanos(RequestTiming.Phase.CONNECT), "second request reuses it");
+
+            Map<RequestTiming.Phase, LatencyHistogram.Snapshot> host = recorder.snapshot().get(baseUrl);
+            log.info("{}", host);
+            assertEquals(2, host.get(RequestTiming.Phase.TOTAL).getCount());
+        } finally {
+            HttpUtil.setTimingEnabled(false);
+            recorder.removeListener(listener);
+            recorder.reset();
+        }
+        HttpUtil.doGet(baseUrl + "/echo?id=2");
+        assertEquals(2, timings.size(), "disabled recorder should not notify");
+    }
+
+    @Test
+    void boundedBody() throws Exception {
+        HttpUtil.setMaxBodySize(4096);
+        try {
+            assertEquals(4000, HttpUtil.doGet(baseUrl + "/bytes?size=4000").length());
+            assertNull(HttpUtil.doGet(baseUrl + "/bytes?size=5000"), "Content-Length above the limit");
+            assertNull(HttpUtil.doGet(baseUrl + "/bytes?size=500000&chunked"), "chunked body above the limit");
+            assertEquals(5000, HttpUtil.doGet(baseUrl + "/bytes?size=5000&chunked", null, null, 8192).length());
+            assertThrows(ResponseTooLargeException.class,
+                    () -> HttpUtil.execute(Request.get(baseUrl + "/bytes?size=200&chunked").maxBodySize(100)));
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> HttpUtil.async().get(baseUrl + "/bytes?size=500000&chunked").join());
+            assertTrue(e.getCause() instanceof ResponseTooLargeException);
+            // 压缩后约 2KB，没有超过限制，解压后的长度同样受限
+            e = assertThrows(CompletionException.class,
+                    () -> HttpUtil.async().get(baseUrl + "/bomb?size=" + 2 * 1024 * 1024).join());
+            assertTrue(e.getCause() instanceof ResponseTooLargeException, String.valueOf(e.getCause()));
+            assertThrows(ResponseTooLargeException.class,
+                    () -> HttpUtil.execute(Request.get(baseUrl + "/bomb?size=" + 2 * 1024 * 1024)));
+            assertEquals(4000, HttpUtil.async().get(baseUrl + "/bomb?size=4000").join().getBody().length);
+            assertThrows(ResponseTooLargeException.class, () -> HttpUtil.doGetStream(baseUrl + "/bytes?size=500000",
+                    null, null, in -> BodyReader.limit(in, 100).readAllBytes()));
+            assertEquals("id=1", HttpUtil.doGet(baseUrl + "/echo?id=1"), "pool should still work after aborts");
+        } finally {
+            HttpUtil.setMaxBodySize(64 * 1024 * 1024);
+        }
+
+        File file;
+        try (SpooledBody body = HttpUtil.doGetSpooled(baseUrl + "/bytes", Map.of("size", 3 * 1024 * 1024), null,
+                16 * 1024 * 1024)) {
+            assertFalse(body.isInMemory());
+            file = body.getFile();
+            assertTrue(file.exists());
+            assertEquals(3 * 1024 * 1024, body.length());
+            try (InputStream in = body.openStream()) {
+                assertEquals(3 * 1024 * 1024, in.readAllBytes().length);
+            }
+        }
+        assertFalse(file.exists(), "temp file should be deleted on close");
+        try (SpooledBody body = HttpUtil.doGetSpooled(baseUrl + "/echo?id=2", null, null, 1024)) {
+            assertTrue(body.isInMemory());
+            assertEquals("id=2", body.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void hedgedGet() {
+        // 先预热异步客户端，保证主请求先到达服务端
+        HttpUtil.async().get(baseUrl + "/echo", null, null).join();
+        HedgePolicy policy = new HedgePolicy(95, 50, 100);
+        long start = System.currentTimeMillis();
+        Response response = HttpUtil.async().getHedged(baseUrl + "/hedge", null, null, policy).join();
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("{} elapsed:{}ms", policy, elapsed);
+        assertEquals("fast", response.getBodyAsString());
+        assertTrue(elapsed < 1500, "hedge should answer before the slow replica");
+        assertEquals(1, policy.getHedged());
+    }
+
+    @Test
+    void callScope() throws Exception {
+        log.info("virtual threads supported:{}", VirtualThreads.isSupported());
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            try (CallScope scope = HttpUtil.openScope(5000)) {
+                for (int i = 0; i < 20; i++) {
+                    String url = baseUrl + "/echo?id=" + i;
+                    futures.add(scope.fork(() -> HttpUtil.doGet(url)));
+                }
+                scope.join();
+            }
+            for (int i = 0; i < 20; i++) {
+                assertEquals("id=" + i, futures.get(i).get());
+            }
+
+            Future<String> slow;
+            try (CallScope scope = HttpUtil.openScope(300)) {
+                Future<String> fast = scope.fork(() -> HttpUtil.doGet(baseUrl + "/echo?id=fast"));
+                slow = scope.fork(() -> HttpUtil.doGet(baseUrl + "/slow", Map.of("ms", 3000), null));
+                assertThrows(TimeoutException.class, scope::join);
+                assertEquals("id=fast", fast.get());
+            }
+            assertTrue(slow.isCancelled(), "unfinished call should be cancelled at the deadline");
+        } finally {
+            // 释放并发调用留下的空闲连接
+            HttpUtil.shutdown();
+        }
+    }
+
+    @Test
+    void callScopeWaitsAtRouteGate() throws Exception {
+        // Java 21 起 fork 的调用跑在虚拟线程上，超出连接上限的调用在信号量上等待，不占住载体线程
+        HttpUtil.setMaxPerRoute(baseUrl, 3);
+        gatedMaxInFlight.set(0);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            try (CallScope scope = HttpUtil.openScope(20000)) {
+                for (int i = 0; i < 40; i++) {
+                    futures.add(scope.fork(() -> {
+                        if (VirtualThreads.isSupported()) {
+                            assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+                        }
+                        return HttpUtil.doGet(baseUrl + "/gated");
+                    }));
+                }
+                scope.join();
+            }
+            for (Future<String> future : futures) {
+                assertEquals("gated", future.get());
+            }
+            assertTrue(gatedMaxInFlight.get() <= 3, "in-flight requests should not exceed the route limit");
+            PoolStats route = HttpUtil.getPoolStats().getRoutes().get(baseUrl);
+            assertEquals(0, route.getLeased());
+            assertEquals(0, route.getPending(), "callers should wait at the gate, not inside the pool");
+        } finally {
+            HttpUtil.setMaxPerRoute(baseUrl, 200);
+            HttpUtil.shutdown();
+        }
+    }
+
+    @Test
+    void prewarmAndKeepAlive() {
+        HttpUtil.shutdown();
+        try {
+            assertEquals(4, HttpUtil.prewarm(baseUrl, 4));
+            PoolStats route = HttpUtil.getPoolStats().getRoutes().get(baseUrl);
+            assertEquals(4, route.getAvailable());
+            assertEquals(0, route.getLeased());
+            // 已经预热的连接直接复用，不再新建
+            assertEquals("id=1", HttpUtil.doGet(baseUrl + "/echo?id=1"));
+            assertEquals(4, HttpUtil.getPoolStats().getRoutes().get(baseUrl).getAvailable());
+            assertEquals(4, HttpUtil.prewarm(baseUrl, 4));
+        } finally {
+            HttpUtil.shutdown();
+        }
+
+        KeepAliveStrategy keepAlive = HttpUtil.getKeepAliveStrategy();
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        assertEquals(keepAlive.getDefaultMillis(), keepAlive.getKeepAliveDuration(response, null));
+        response.setHeader("Keep-Alive", "timeout=5, max=100");
+        assertEquals(5000, keepAlive.getKeepAliveDuration(response, null));
+        response.setHeader("Keep-Alive", "timeout=3600");
+        assertEquals(keepAlive.getMaxMillis(), keepAlive.getKeepAliveDuration(response, null));
+        // timeout=0 表示不保留，不能当作没有声明使用默认值
+        response.setHeader("Keep-Alive", "timeout=0");
+        assertEquals(1, keepAlive.getKeepAliveDuration(response, null));
+    }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * Copyright [2014] [zangrong CetianTech]
+ */
+package com.cetian.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class JacksonUtilTest {
+
+    public static class User {
+        private String name;
+        private int age;
+        private List<String> tags;
+
+        public User() {
+        }
+
+        public User(String name, int age, List<String> tags) {
+            this.name = name;
+            this.age = age;
+            this.tags = tags;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+
+    @Test
+    void typedReadersAndWriters() {
+        User user = new User("tom", 18, List.of("a", "b"));
+        String json = JacksonUtil.toJson(user);
+        assertEquals("{\"name\":\"tom\",\"age\":18,\"tags\":[\"a\",\"b\"]}", json);
+        assertEquals("{\"age\":0}", JacksonUtil.toJson(new User()), "null fields should be skipped");
+
+        User parsed = JacksonUtil.fromJson(json, User.class);
+        assertEquals("tom", parsed.getName());
+        assertEquals(List.of("a", "b"), parsed.getTags());
+
+        List<User> users = JacksonUtil.toListFromJson("[" + json + "," + json + "]", User.class);
+        assertEquals(2, users.size());
+        assertEquals(18, users.get(1).getAge(), "elements should be decoded as User, not Map");
+        assertNull(JacksonUtil.toList(null, User.class));
+
+        Map<String, List<User>> grouped = JacksonUtil.fromJson("{\"g\":[" + json + "]}",
+                new TypeReference<Map<String, List<User>>>() {
+                });
+        assertEquals("tom", grouped.get("g").get(0).getName());
+
+        JavaType type = JacksonUtil.getTypeFactory().constructMapType(Map.class, String.class, User.class);
+        Map<String, User> byName = JacksonUtil.fromJson("{\"tom\":" + json + "}", type);
+        assertEquals(18, byName.get("tom").getAge());
+
+        assertThrows(IllegalArgumentException.class, () -> JacksonUtil.fromJson("{", User.class));
+    }
+
+    @Test
+    void bytes() throws IOException {
+        User user = new User("汤姆", 18, List.of("a"));
+        byte[] bytes = JacksonUtil.toJsonBytes(user);
+        assertArrayEquals(JacksonUtil.toJson(user).getBytes(StandardCharsets.UTF_8), bytes);
+        assertEquals("汤姆", JacksonUtil.fromJson(bytes, User.class).getName());
+        Map<String, Object> map = JacksonUtil.fromJson(bytes, new TypeReference<Map<String, Object>>() {
+        });
+        assertEquals(List.of("a"), map.get("tags"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JacksonUtil.writeJson(user, out);
+        assertEquals(18, JacksonUtil.fromJson(new ByteArrayInputStream(out.toByteArray()), User.class).getAge());
+
+        // 只解析 position 到 limit 之间，不改变 position
+        ByteBuffer heap = ByteBuffer.allocate(bytes.length + 4);
+        heap.put("xx".getBytes(StandardCharsets.UTF_8)).put(bytes).flip().position(2);
+        assertEquals("汤姆", JacksonUtil.fromJson(heap, User.class).getName());
+        assertEquals(2, heap.position());
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        assertEquals(18, JacksonUtil.fromJson(direct, User.class).getAge());
+        assertEquals(0, direct.position());
+
+        assertThrows(IllegalArgumentException.class, () -> JacksonUtil.fromJson(new byte[] {'{'}, User.class));
+    }
+
+    @Test
+    void deepClone() {
+        User user = new User("tom", 18, new ArrayList<>(List.of("a")));
+        User copy = JacksonUtil.clone(user);
+        assertNotSame(user, copy);
+        assertNotSame(user.getTags(), copy.getTags());
+        assertEquals(JacksonUtil.toJson(user), JacksonUtil.toJson(copy));
+        user.getTags().add("b");
+        assertEquals(List.of("a"), copy.getTags());
+
+        Map<String, Object> map = Map.of("price", new BigDecimal("12345678901234567890.123456789"));
+        assertEquals(map.get("price").toString(), JacksonUtil.clone(map).get("price").toString());
+        assertNull(JacksonUtil.clone(null));
+    }
+}